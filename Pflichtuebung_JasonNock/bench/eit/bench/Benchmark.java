@@ -0,0 +1,119 @@
+package eit.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * <p>
+ * This class measures the throughput and the allocation rate of an
+ * operation.<br>
+ * The operation is repeated for a warm up time first, so the just in time
+ * compiler can optimise it, and then for a measurement time. The allocated
+ * bytes are summed over all threads, so work done on the fork join pool is
+ * included. The number and the duration of the garbage collections during the
+ * measurement are reported as well. Output of the operation to the console is
+ * discarded while it is measured.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class Benchmark {
+
+	final static long WARMUPNANOS = 1_000_000_000L;
+	final static long MEASURENANOS = 3_000_000_000L;
+	final static double MEGABYTE = 1024 * 1024;
+
+	private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+	// consumes the results, so the operations can not be optimised away
+	private static volatile int sink;
+
+	private Benchmark() {
+	}
+
+	/**
+	 * prints the head of the result table
+	 */
+	static void printHeader() {
+		System.out.println(String.format("%-44s %12s %10s %14s %6s %8s", "benchmark", "ops/s", "MB/s", "alloc B/op",
+				"gc", "gc ms"));
+	}
+
+	/**
+	 * runs an operation for the warm up and the measurement time and prints its
+	 * results.<br>
+	 * Every phase runs the operation at least once.
+	 *
+	 * @param name              identifies the benchmark in the result table
+	 * @param bytesPerOperation number of payload bytes processed by one operation
+	 * @param operation         the operation to be measured
+	 */
+	static void run(String name, long bytesPerOperation, Supplier<?> operation) {
+		PrintStream console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		long operations;
+		long elapsedNanos;
+		long allocatedBytes;
+		long gcCount;
+		long gcMillis;
+		try {
+			repeat(operation, WARMUPNANOS);
+			long startBytes = allocatedBytes();
+			long startGcCount = gcCount();
+			long startGcMillis = gcMillis();
+			long start = System.nanoTime();
+			operations = repeat(operation, MEASURENANOS);
+			elapsedNanos = System.nanoTime() - start;
+			allocatedBytes = allocatedBytes() - startBytes;
+			gcCount = gcCount() - startGcCount;
+			gcMillis = gcMillis() - startGcMillis;
+		} finally {
+			System.setOut(console);
+		}
+		double operationsPerSecond = operations * 1e9 / elapsedNanos;
+		System.out.println(String.format("%-44s %12.1f %10.1f %14d %6d %8d", name, operationsPerSecond,
+				operationsPerSecond * bytesPerOperation / MEGABYTE, allocatedBytes / operations, gcCount, gcMillis));
+	}
+
+	private static long repeat(Supplier<?> operation, long durationNanos) {
+		long operations = 0;
+		long end = System.nanoTime() + durationNanos;
+		do {
+			Object result = operation.get();
+			sink ^= (result == null) ? 0 : System.identityHashCode(result);
+			operations++;
+		} while (System.nanoTime() < end);
+		return operations;
+	}
+
+	private static long allocatedBytes() {
+		long allocatedBytes = 0;
+		for (long threadAllocatedBytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+			// threads which ended in the meantime are reported with -1
+			if (threadAllocatedBytes > 0) {
+				allocatedBytes += threadAllocatedBytes;
+			}
+		}
+		return allocatedBytes;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+}
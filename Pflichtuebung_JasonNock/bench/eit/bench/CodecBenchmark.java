@@ -0,0 +1,56 @@
+package eit.bench;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import osi.linecode.Codec4B5B;
+import osi.linecode.PassthroughCodec;
+import osi.linecode.WordCodec4B5B;
+
+/**
+ * <p>
+ * Benchmarks of the 4B5B codec.<br>
+ * Frames of 46, 512, 1500 and 9000 bytes are encoded and decoded, both as
+ * String of line code and as bit-packed binary line code. The scalar codec is
+ * compared with the codec processing 64 bit words, the passthrough codec of the
+ * loopback mode is measured for comparison.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class CodecBenchmark {
+
+	final static int[] FRAMESIZES = { 46, 512, 1500, 9000 };
+
+	private CodecBenchmark() {
+	}
+
+	/**
+	 * runs all codec benchmarks
+	 */
+	static void run() {
+		Codec4B5B[] codecs = { new Codec4B5B(), new WordCodec4B5B() };
+		String[] codecNames = { "codec", "wordcodec" };
+		PassthroughCodec passthrough = new PassthroughCodec();
+		Random random = new Random(1);
+		for (int frameSize : FRAMESIZES) {
+			byte[] frame = new byte[frameSize];
+			random.nextBytes(frame);
+			for (int i = 0; i < codecs.length; i++) {
+				Codec4B5B codec = codecs[i];
+				String name = codecNames[i];
+				String lineCode = codec.encode(frame);
+				ByteBuffer binaryLineCode = codec.encodeBinary(frame);
+				Benchmark.run(name + " encode " + frameSize, frameSize, () -> codec.encode(frame));
+				Benchmark.run(name + " decode " + frameSize, frameSize, () -> codec.decode(lineCode));
+				Benchmark.run(name + " encodeBinary " + frameSize, frameSize, () -> codec.encodeBinary(frame));
+				Benchmark.run(name + " decodeBinary " + frameSize, frameSize,
+						() -> codec.decodeBinary(binaryLineCode));
+			}
+			Benchmark.run("passthrough encodeBinary " + frameSize, frameSize,
+					() -> passthrough.encodeBinary(frame, 0, frameSize));
+			Benchmark.run("passthrough decodeBinary " + frameSize, frameSize,
+					() -> passthrough.decodeBinary(passthrough.encodeBinary(frame, 0, frameSize)));
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package eit.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import osi.layer.CreateInstances;
+import osi.layer.application.DataTransfer;
+import osi.layer.physical.RingMedium;
+
+/**
+ * <p>
+ * Benchmarks of complete transfers.<br>
+ * A file is sent, received through the receive pipeline and written by the
+ * receiver, like the send command of the {@link eit.cli.Main} class does. Every
+ * file size is transferred with 1, 10 and 1000 attached receivers, the file is
+ * always addressed to the first receiver. All transfers are run with the
+ * default maximal transmission unit and with jumbo frames. Up to
+ * {@value #MAXRINGRECEIVERS} receivers the transfers are also run through a
+ * ring medium, whose receivers run on their own threads while the frames are
+ * published. The received files are written to a temporary directory.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class EndToEndBenchmark {
+
+	final static int[] FILESIZES = { 1024, 1024 * 1024, 100 * 1024 * 1024 };
+	final static int[] RECEIVERCOUNTS = { 1, 10, 1000 };
+	final static int[] MTUS = { 1500, 9000 };
+	final static int MAXRINGRECEIVERS = 10;
+
+	private EndToEndBenchmark() {
+	}
+
+	/**
+	 * runs all end to end benchmarks
+	 * 
+	 * @throws IOException if the temporary directory can not be created
+	 */
+	static void run() throws IOException {
+		Path directory = Files.createTempDirectory("bench");
+		Random random = new Random(1);
+		for (int fileSize : FILESIZES) {
+			byte[] file = new byte[fileSize];
+			random.nextBytes(file);
+			for (int receiverCount : RECEIVERCOUNTS) {
+				for (int mtu : MTUS) {
+					transfer(directory, file, receiverCount, mtu, false);
+					if (receiverCount <= MAXRINGRECEIVERS) {
+						transfer(directory, file, receiverCount, mtu, true);
+					}
+				}
+			}
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) files::iterator) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	private static void transfer(Path directory, byte[] file, int receiverCount, int mtu, boolean ring) {
+		CreateInstances creator = new CreateInstances(mtu);
+		DataTransfer sender = creator.createSenderInstance(new String[] { "AAAAAA", "1111", "22" });
+		for (int i = 0; i < receiverCount; i++) {
+			String name = directory.resolve("r" + i).toString();
+			// every receiver gets its own data link address
+			String dataLinkAddress = String.format("R%05d", i);
+			creator.createReceiverInstance(new String[] { name, dataLinkAddress, "3333", "44" });
+		}
+		String benchmarkName = "transfer " + file.length + " B to 1 of " + receiverCount + " MTU " + mtu
+				+ (ring ? " ring" : "");
+		if (!ring) {
+			Benchmark.run(benchmarkName, file.length, () -> {
+				List<ByteBuffer> frames = sender.sendDataBinary(file, "44".getBytes(), "3333".getBytes(),
+						"R00000".getBytes());
+				// the receiver writes the fragments directly into its file
+				return creator.getReceivePipeline().receive(frames);
+			});
+		} else {
+			RingMedium ringMedium = creator.getRingMedium();
+			Benchmark.run(benchmarkName, file.length, () -> {
+				// the frames are published while they are produced
+				try (Stream<ByteBuffer> frames = sender.streamDataBinary(ByteBuffer.wrap(file), "44".getBytes(),
+						"3333".getBytes(), "R00000".getBytes())) {
+					frames.forEach(ringMedium::publish);
+				}
+				ringMedium.drain();
+				return ringMedium;
+			});
+			ringMedium.close();
+		}
+	}
+}
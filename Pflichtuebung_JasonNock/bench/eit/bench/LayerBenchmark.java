@@ -0,0 +1,153 @@
+package eit.bench;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import osi.layer.FrameBuffer;
+import osi.layer.application.DataTransfer;
+import osi.layer.datalink.DataLink;
+import osi.layer.network.Network;
+import osi.layer.physical.PHY;
+import osi.layer.transport.Transport;
+import osi.linecode.Codec;
+import osi.linecode.Codec4B5B;
+import osi.linecode.PassthroughCodec;
+import osi.metrics.Metrics;
+
+/**
+ * <p>
+ * Benchmarks of the req and ind methods of every layer.<br>
+ * A req is measured above a physical layer whose codec does not encode
+ * anything, so it measures the work of the layer and of the layers below it
+ * without the line coding. The work of a single layer is the difference to the
+ * layer below. An ind is measured on a layer without upper layer, so only the
+ * layer itself processes the frame. All layers process a frame of a full
+ * fragment. Small datagrams are requested one by one and in batches of
+ * {@value #BATCHSIZE}, which shows the fixed costs of a request. Every
+ * benchmark runs with the metrics switched off and on, which shows the cost of
+ * the instrumentation.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class LayerBenchmark {
+
+	final static int FRAGMENTSIZE = 1471;
+	final static int DATAGRAMSIZE = 64;
+	final static int BATCHSIZE = 16;
+	final static int DATALINKPCIBYTES = 14;
+	final static int NETWORKPCIBYTES = 9;
+	final static int TRANSPORTPCIBYTES = 6;
+	final static byte[] DATATYPE = { 8, 0 };
+	final static byte[] TRANSPORTPROTOCOL = { 17 };
+
+	final static byte[] DATALINKADDRESS = "BBBBBB".getBytes();
+	final static byte[] NETWORKADDRESS = "3333".getBytes();
+	final static byte[] PORT = "44".getBytes();
+
+	private LayerBenchmark() {
+	}
+
+	/**
+	 * runs all layer benchmarks
+	 */
+	static void run() {
+		boolean enabled = Metrics.isEnabled();
+		try {
+			Metrics.setEnabled(false);
+			run("");
+			Metrics.setEnabled(true);
+			run(" metrics");
+		} finally {
+			Metrics.setEnabled(enabled);
+		}
+	}
+
+	private static void run(String variant) {
+		byte[] fragment = new byte[FRAGMENTSIZE];
+		new Random(1).nextBytes(fragment);
+		byte[] fragmentHeader = DataTransfer.createFragmentHeader(0, 0, 0, FRAGMENTSIZE);
+
+		// the data units every layer gets from the layer above
+		Codec codec = new Codec4B5B();
+		DataTransfer sender = new DataTransfer(new Transport("22".getBytes(),
+				new Network("1111".getBytes(), new DataLink("AAAAAA".getBytes(), new PHY(codec)))));
+		byte[] frame = codec.decode(sender.req(fragmentHeader, fragment, PORT, NETWORKADDRESS, DATALINKADDRESS));
+		byte[] networkPDU = Arrays.copyOfRange(frame, DATALINKPCIBYTES, frame.length);
+		byte[] transportPDU = Arrays.copyOfRange(networkPDU, NETWORKPCIBYTES, networkPDU.length);
+		byte[] applicationPDU = Arrays.copyOfRange(transportPDU, TRANSPORTPCIBYTES,
+				TRANSPORTPCIBYTES + fragmentHeader.length + FRAGMENTSIZE);
+
+		DataLink dataLinkLayer = new DataLink("AAAAAA".getBytes(), new PHY(new SilentCodec()));
+		Network networkLayer = new Network("1111".getBytes(), dataLinkLayer);
+		Transport transportLayer = new Transport("22".getBytes(), networkLayer);
+		DataTransfer applicationLayer = new DataTransfer(transportLayer);
+		Benchmark.run("req DataLink" + variant, FRAGMENTSIZE,
+				() -> dataLinkLayer.req(DATALINKADDRESS, DATATYPE, networkPDU));
+		Benchmark.run("req Network" + variant, FRAGMENTSIZE,
+				() -> networkLayer.req(NETWORKADDRESS, TRANSPORTPROTOCOL, transportPDU, DATALINKADDRESS));
+		Benchmark.run("req Transport" + variant, FRAGMENTSIZE,
+				() -> transportLayer.req(PORT, applicationPDU, NETWORKADDRESS, DATALINKADDRESS));
+		Benchmark.run("req DataTransfer" + variant, FRAGMENTSIZE,
+				() -> applicationLayer.req(fragmentHeader, fragment, PORT, NETWORKADDRESS, DATALINKADDRESS));
+
+		DataLink dataLinkReceiver = new DataLink(DATALINKADDRESS, new PHY(codec));
+		Network networkReceiver = new Network(NETWORKADDRESS, new DataLink(DATALINKADDRESS, new PHY(codec)));
+		Transport transportReceiver = new Transport(PORT,
+				new Network(NETWORKADDRESS, new DataLink(DATALINKADDRESS, new PHY(codec))));
+		DataTransfer applicationReceiver = new DataTransfer(
+				new Transport(PORT, new Network(NETWORKADDRESS, new DataLink(DATALINKADDRESS, new PHY(codec)))));
+		Benchmark.run("ind DataLink" + variant, FRAGMENTSIZE, () -> dataLinkReceiver.ind(frame));
+		Benchmark.run("ind Network" + variant, FRAGMENTSIZE, () -> networkReceiver.ind(networkPDU));
+		Benchmark.run("ind Transport" + variant, FRAGMENTSIZE, () -> transportReceiver.ind(transportPDU));
+		Benchmark.run("ind DataTransfer" + variant, FRAGMENTSIZE, () -> applicationReceiver.ind(applicationPDU));
+
+		byte[] datagram = Arrays.copyOf(fragment, DATAGRAMSIZE);
+		Transport datagramLayer = new Transport("22".getBytes(),
+				new Network("1111".getBytes(), new DataLink("AAAAAA".getBytes(), new PHY(new PassthroughCodec()))));
+		Benchmark.run("req " + BATCHSIZE + " datagrams" + variant, BATCHSIZE * DATAGRAMSIZE, () -> {
+			List<ByteBuffer> frames = new ArrayList<ByteBuffer>(BATCHSIZE);
+			for (int i = 0; i < BATCHSIZE; i++) {
+				frames.add(datagramLayer.reqBinary(PORT, datagram, NETWORKADDRESS, DATALINKADDRESS));
+			}
+			return frames;
+		});
+		Benchmark.run("reqBatch " + BATCHSIZE + " datagrams" + variant, BATCHSIZE * DATAGRAMSIZE, () -> {
+			List<FrameBuffer> sdus = new ArrayList<FrameBuffer>(BATCHSIZE);
+			for (int i = 0; i < BATCHSIZE; i++) {
+				sdus.add(FrameBuffer.acquireCopyOf(datagramLayer.getHeadroom(), datagram));
+			}
+			try {
+				return datagramLayer.reqBatch(sdus, PORT, NETWORKADDRESS, DATALINKADDRESS);
+			} finally {
+				for (FrameBuffer sdu : sdus) {
+					sdu.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * codec which does not encode anything
+	 */
+	private static class SilentCodec implements Codec {
+
+		@Override
+		public String encode(byte[] data) {
+			return "";
+		}
+
+		@Override
+		public String encode(byte[] data, int offset, int length) {
+			return "";
+		}
+
+		@Override
+		public byte[] decode(String data) {
+			return new byte[0];
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package eit.bench;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Runs the benchmarks of the OSI stack and prints their throughput and
+ * allocation rate.<br>
+ * The benchmarks are selected by the command line arguments <code>codec</code>,
+ * <code>layer</code> and <code>endtoend</code>. Without arguments all
+ * benchmarks are run. The sources of the folder <code>bench</code> are compiled
+ * together with the sources of the folder <code>src</code>, e.g.
+ * 
+ * <pre>
+ * javac -d bin $(find src bench -name '*.java')
+ * java -p bin -m Pflichtuebung1_JasonNock/eit.bench.RunBenchmarks codec layer
+ * </pre>
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class RunBenchmarks {
+
+	/**
+	 * runs the selected benchmarks
+	 * 
+	 * @param args contain the names of the benchmarks to run
+	 * @throws IOException if the files of the end to end benchmarks can not be
+	 *                     written
+	 */
+	public static void main(String[] args) throws IOException {
+		List<String> selection = Arrays.asList(args);
+		Benchmark.printHeader();
+		if (selection.isEmpty() || selection.contains("codec")) {
+			CodecBenchmark.run();
+		}
+		if (selection.isEmpty() || selection.contains("layer")) {
+			LayerBenchmark.run();
+		}
+		if (selection.isEmpty() || selection.contains("endtoend")) {
+			EndToEndBenchmark.run();
+		}
+	}
+}
@@ -1,24 +1,39 @@
 package eit.cli;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Set;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 import edu.fra.uas.oop.Terminal;
 import osi.layer.CreateInstances;
 import osi.layer.application.BuildFile;
 import osi.layer.application.DataTransfer;
+import osi.layer.application.FramePublisher;
 import osi.layer.physical.PHY;
+import osi.layer.physical.RingMedium;
 
 /**
  * <p>
  * The Main class defines the programs users interface. <br>
- * In here the user can control the program.
+ * In here the user can control the program. With the command line argument
+ * loopback the frames are passed from the sender to the receivers without line
+ * coding. With the command line argument ring the frames are put on a ring
+ * medium and every receiver takes them on its own thread, while the sender
+ * still produces the next frames. With the command line argument flow the
+ * receivers subscribe to the frames of a transfer, which are produced only as
+ * fast as the receivers request them.
  * 
  * @author Jason Nock
- * @version 2.7
+ * @version 2.8
  */
 public class Main {
 
@@ -31,9 +46,15 @@ public class Main {
 	 */
 	public static void main(String[] args) {
 
-		CreateInstances creator = new CreateInstances();
+		List<String> options = Arrays.asList(args);
+		// sender and receivers live in this process, so the line coding can be skipped
+		boolean loopback = options.contains("loopback");
+		// the receivers take the frames from a ring buffer on their own threads
+		boolean ring = options.contains("ring");
+		// the receivers request the frames from a publisher
+		boolean flow = options.contains("flow");
+		CreateInstances creator = new CreateInstances(CreateInstances.DEFAULTMTU, loopback);
 		DataTransfer senderInstance = null;
-		HashMap<PHY, String> receiverAccess = null;
 		BuildFile builder = null;
 		String[] input;
 		String[] dataContent;
@@ -61,35 +82,60 @@ public class Main {
 					dataContent = creator.connectData(input[1].split(" "));
 					// ensures that a sender and receiver instance exists to prevent null pointer
 					if (senderInstance != null && builder != null) {
-						try {
+						try (FileChannel inputFile = FileChannel.open(Paths.get(dataContent[0]),
+								StandardOpenOption.READ)) {
 							// transmitting the data
-							String receiverName = "";
-							FileInputStream inputFile = new FileInputStream(dataContent[0]);
-							byte[] inputFileData = inputFile.readAllBytes();
-							String fullLinecode = senderInstance.sendData(inputFileData, dataContent[1].getBytes(),
-									dataContent[2].getBytes(), dataContent[3].getBytes());
-							String[] singleLinecode = fullLinecode.split("\n");
-							receiverAccess = builder.getReceiverAccess();
-							// creating a set of all PHY access pointers
-							Set<PHY> receiverInstances = receiverAccess.keySet();
-							for (int i = 0; i < singleLinecode.length ; i++) {
-								// going through each receiver instance
-								for (PHY instance : receiverInstances) {
-									instance.receive(singleLinecode[i]);
-									// if the decoded Package is not equal to null the value is valid
-									if (instance.getDecodedPackage() != null) {
-										// assign receiver name and transmitted text
-										receiverName = receiverAccess.get(instance);
-										// print the successfully received message
-										builder.createFile(receiverName);
+							if (inputFile.size() > Integer.MAX_VALUE) {
+								Terminal.printError("file too large");
+								continue;
+							}
+							// the file is mapped into memory instead of being read into the heap
+							MappedByteBuffer inputFileData = inputFile.map(MapMode.READ_ONLY, 0, inputFile.size());
+							if (flow) {
+								// every receiver subscribes before the transfer starts, the next frame is
+								// produced when all receivers requested it
+								FramePublisher publisher = senderInstance.publishData(inputFileData,
+										dataContent[1].getBytes(), dataContent[2].getBytes(),
+										dataContent[3].getBytes());
+								builder.getReceiverAccess().keySet().forEach(publisher::subscribe);
+								publisher.connect().join();
+								// a receiver which could not write its file left the transfer early
+								for (PHY receiver : builder.getReceiverAccess().keySet()) {
+									if (receiver.getReceiveFailure() != null) {
+										receiver.getReceiveFailure().printStackTrace();
 									}
 								}
+							} else if (ring) {
+								// the sender hands every frame to the ring on its executor while every
+								// receiver follows the ring on its own thread, the transfer ends when all
+								// receivers took all frames
+								RingMedium ringMedium = creator.getRingMedium();
+								senderInstance.sendAsync(inputFileData, dataContent[1].getBytes(),
+										dataContent[2].getBytes(), dataContent[3].getBytes(), ringMedium::publish)
+										.join();
+								ringMedium.drain();
+							} else {
+								// every frame is produced as bit-packed line code when the pipeline takes
+								// it, closing the stream ends the fragmentation of the transfer
+								try (Stream<ByteBuffer> singleLinecode = senderInstance.streamDataBinary(
+										inputFileData, dataContent[1].getBytes(), dataContent[2].getBytes(),
+										dataContent[3].getBytes())) {
+									// the pipeline decodes the frames concurrently and hands them only to the
+									// receivers with a matching address, the receivers get the frames in
+									// order, write them directly into their files and print the successfully
+									// received files
+									creator.getReceivePipeline().receive(singleLinecode::iterator);
+								}
 							}
-							inputFile.close();
-						} catch (FileNotFoundException e) {
-							e.printStackTrace();
 						} catch (IOException e) {
 							e.printStackTrace();
+						} catch (UncheckedIOException e) {
+							// a receiver could not write its file
+							e.printStackTrace();
+						} catch (CompletionException e) {
+							// the sender could not fragment the file or a receiver could not write its
+							// file or decode a frame
+							e.getCause().printStackTrace();
 						}
 					}
 				} else {
@@ -97,6 +143,8 @@ public class Main {
 				}
 			} else if (input[0].equals("quit")) { // check if end of program is commanded
 				prgRun = false; // end program
+				// stop the receiver threads of the ring medium
+				creator.close();
 			} else {
 				Terminal.printError("unknown command");
 			}
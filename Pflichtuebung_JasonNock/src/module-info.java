@@ -1,2 +1,7 @@
 module Pflichtuebung1_JasonNock {
-}
\ No newline at end of file
+	requires java.management;
+	requires jdk.management;
+	requires jdk.jfr;
+
+	exports osi.metrics to java.management;
+}
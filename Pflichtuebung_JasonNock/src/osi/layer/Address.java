@@ -0,0 +1,128 @@
+package osi.layer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * Converts the addresses and ports of the layers between their primitive form
+ * and their big endian form within a PCI.<br>
+ * The layers store their addresses as primitive values: a data link address of
+ * 6 bytes in the lower 48 bits of a <code>long</code>, a network address of 4
+ * bytes in an <code>int</code> and a port of 2 bytes in a <code>short</code>.
+ * So checking the destination of a received frame takes a single read out of
+ * the frame and a single comparison, without copying the address out of the
+ * frame.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public final class Address {
+
+	/**
+	 * number of bytes of a data link address
+	 */
+	public final static int MACBYTES = 6;
+
+	/**
+	 * number of bytes of a network address
+	 */
+	public final static int IPV4BYTES = 4;
+
+	/**
+	 * number of bytes of a port
+	 */
+	public final static int PORTBYTES = 2;
+
+	/**
+	 * value, which is never a valid data link address, because it has more than 48
+	 * bits
+	 */
+	public final static long NOMAC = -1;
+
+	private final static VarHandle SHORTVIEW = MethodHandles.byteArrayViewVarHandle(short[].class,
+			ByteOrder.BIG_ENDIAN);
+	private final static VarHandle INTVIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+	private Address() {
+	}
+
+	/**
+	 * reads a data link address
+	 *
+	 * @param buffer holds the address
+	 * @param index  index of the first byte of the address
+	 * @return the address in the lower 48 bits
+	 */
+	public static long readMAC(byte[] buffer, int index) {
+		return ((short) SHORTVIEW.get(buffer, index) & 0xffffL) << 32
+				| (int) INTVIEW.get(buffer, index + 2) & 0xffffffffL;
+	}
+
+	/**
+	 * writes a data link address
+	 *
+	 * @param buffer  receives the address
+	 * @param index   index of the first byte of the address
+	 * @param address the address in the lower 48 bits
+	 */
+	public static void writeMAC(byte[] buffer, int index, long address) {
+		SHORTVIEW.set(buffer, index, (short) (address >>> 32));
+		INTVIEW.set(buffer, index + 2, (int) address);
+	}
+
+	/**
+	 * reads a network address
+	 *
+	 * @param buffer holds the address
+	 * @param index  index of the first byte of the address
+	 * @return the address
+	 */
+	public static int readIPv4(byte[] buffer, int index) {
+		return (int) INTVIEW.get(buffer, index);
+	}
+
+	/**
+	 * writes a network address
+	 *
+	 * @param buffer  receives the address
+	 * @param index   index of the first byte of the address
+	 * @param address the address
+	 */
+	public static void writeIPv4(byte[] buffer, int index, int address) {
+		INTVIEW.set(buffer, index, address);
+	}
+
+	/**
+	 * reads a port
+	 *
+	 * @param buffer holds the port
+	 * @param index  index of the first byte of the port
+	 * @return the port
+	 */
+	public static short readPort(byte[] buffer, int index) {
+		return (short) SHORTVIEW.get(buffer, index);
+	}
+
+	/**
+	 * writes a port
+	 *
+	 * @param buffer receives the port
+	 * @param index  index of the first byte of the port
+	 * @param port   the port
+	 */
+	public static void writePort(byte[] buffer, int index, short port) {
+		SHORTVIEW.set(buffer, index, port);
+	}
+
+	/**
+	 * checks if a value fits into a data link address
+	 *
+	 * @param address the value to check
+	 * @return <code>true</code> if the value has no more than 48 bits
+	 */
+	public static boolean isMAC(long address) {
+		return (address >>> 8 * MACBYTES) == 0;
+	}
+}
@@ -1,5 +1,8 @@
 package osi.layer;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 /**
  * In a network layered architecture, when one layer requires another layer to
  * carry out a service,<br>
@@ -28,6 +31,46 @@ public interface ConnectionlessServicePrimitives {
 	 */
 	String req(byte[]... params);
 
+	/**
+	 * Request: A primitive sent by layer (N + 1) to layer N to request a
+	 * service.<br>
+	 * Works like {@link #req(byte[]...)}, but the resulting line code is returned
+	 * in its bit-packed binary form.
+	 * 
+	 * @param params - method can be called with zero or more arguments.<br>
+	 *               The arguments are the same as for {@link #req(byte[]...)}
+	 * @return bit-packed binary representation of the resulting line code
+	 */
+	ByteBuffer reqBinary(byte[]... params);
+
+	/**
+	 * Request: A primitive sent by layer (N + 1) to layer N to request a
+	 * service.<br>
+	 * Instead of an array the service data unit is handed over as frame buffer.
+	 * The layer writes its protocol control information into the headroom of the
+	 * frame buffer and hands the same frame buffer to its lower layer, so the
+	 * service data unit is never copied.
+	 * 
+	 * @param frame  - holds the service data unit of this layer
+	 * @param params - the arguments of {@link #req(byte[]...)} without the service
+	 *               data unit
+	 * @return string representation of the resulting line code
+	 */
+	String req(FrameBuffer frame, byte[]... params);
+
+	/**
+	 * Request: A primitive sent by layer (N + 1) to layer N to request a
+	 * service.<br>
+	 * Works like {@link #req(FrameBuffer, byte[]...)}, but the resulting line code
+	 * is returned in its bit-packed binary form.
+	 * 
+	 * @param frame  - holds the service data unit of this layer
+	 * @param params - the arguments of {@link #req(byte[]...)} without the service
+	 *               data unit
+	 * @return bit-packed binary representation of the resulting line code
+	 */
+	ByteBuffer reqBinary(FrameBuffer frame, byte[]... params);
+
 	/**
 	 * Indication: A primitive returned to layer (N + l) from layer N<br>
 	 * to advise of activation of a requested service or of an action initiated by
@@ -38,4 +81,48 @@ public interface ConnectionlessServicePrimitives {
 	 * @return service data unit of this layer
 	 */
 	byte[] ind(byte[] serviceDataUnit);
+
+	/**
+	 * Indication: A primitive returned to layer (N + l) from layer N<br>
+	 * Works like {@link #ind(byte[])}, but the service data unit is the window of
+	 * a frame buffer. The layer checks its protocol control information within the
+	 * window, pulls it from the front and hands the same frame buffer to its upper
+	 * layer, so the data is never copied between the layers.
+	 * 
+	 * @param frame - holds the unit of data that has been passed up from the lower
+	 *              layer
+	 * @return service data unit of this layer
+	 */
+	byte[] ind(FrameBuffer frame);
+
+	/**
+	 * Request: A primitive sent by layer (N + 1) to layer N to request a
+	 * service.<br>
+	 * Works like {@link #reqBinary(FrameBuffer, byte[]...)}, but a batch of
+	 * service data units with the same destination is handed over together. The
+	 * layer checks its lower layer and derives its limits once per batch and
+	 * hands the whole batch to its lower layer, so the fixed costs of a request
+	 * are paid once for all frames.
+	 * 
+	 * @param frames - hold the service data units of this layer
+	 * @param params - the arguments of {@link #req(byte[]...)} without the service
+	 *               data unit, they apply to every frame of the batch
+	 * @return bit-packed binary representations of the resulting line codes in the
+	 *         order of the frames
+	 */
+	List<ByteBuffer> reqBatch(List<FrameBuffer> frames, byte[]... params);
+
+	/**
+	 * Indication: A primitive returned to layer (N + l) from layer N<br>
+	 * Works like {@link #ind(FrameBuffer)}, but a batch of frames is checked
+	 * together and the frames intended for this layer are handed to the upper
+	 * layer as one batch.
+	 * 
+	 * @param frames - hold the units of data that have been passed up from the
+	 *               lower layer, a null entry is a frame a lower layer already
+	 *               dropped
+	 * @return service data units of this layer in the order of the frames, null
+	 *         for every frame which is not intended for this layer
+	 */
+	List<byte[]> indBatch(List<FrameBuffer> frames);
 }
\ No newline at end of file
@@ -1,14 +1,21 @@
 package osi.layer;
 
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 import osi.layer.application.BuildFile;
 import osi.layer.application.DataTransfer;
 import osi.layer.datalink.DataLink;
 import osi.layer.physical.PHY;
+import osi.layer.physical.ReceivePipeline;
+import osi.layer.physical.RingMedium;
+import osi.layer.physical.SharedMedium;
 import osi.layer.transport.Transport;
 import osi.linecode.Codec;
 import osi.linecode.Codec4B5B;
+import osi.linecode.PassthroughCodec;
+import osi.linecode.WordCodec4B5B;
+import osi.metrics.Metrics;
 import osi.layer.network.Network;
 
 /**
@@ -16,15 +23,83 @@ import osi.layer.network.Network;
  * instances.<br>
  * It provides the methods to create sender instances, receiver instances, an
  * HashMap with the receiver names and connects the input data, if the input
- * data Array is greater than 4 elements.
+ * data Array is greater than 4 elements. All stacks are built with the same
+ * maximal transmission unit, which can be raised for jumbo frames. In the
+ * loopback mode the frames are not line coded, because sender and receivers live
+ * in the same process. If the metrics are switched on, the metrics of every
+ * receiver are registered as MBean under its name. The receivers are attached
+ * to a shared medium and, once it is requested, to a ring medium, which hands
+ * the frames to every receiver on its own thread. Closing the creator stops
+ * the threads of the ring medium.
  * 
  * @author Jason Nock
- * @version 2.7
+ * @version 2.8
  */
-public class CreateInstances {
+public class CreateInstances implements AutoCloseable {
 
 	// stores the receivers access instances and the associated names
 	private HashMap<PHY, String> receiverAccess = new HashMap<PHY, String>();
+	// connects the sender with all receivers
+	private SharedMedium medium;
+	// decodes the frames on the medium on all cores
+	private ReceivePipeline pipeline;
+	// connects the sender with all receivers running on their own threads
+	private RingMedium ringMedium;
+	// maximal number of bytes of the service data unit of a frame
+	private int mtu;
+	// passes the frames through without line coding
+	private boolean loopback;
+
+	/**
+	 * maximal transmission unit of a stack, if no other is chosen
+	 */
+	public final static int DEFAULTMTU = 1500;
+
+	/**
+	 * system property, which selects the scalar 4B5B codec instead of the one
+	 * processing 64 bit words
+	 */
+	public final static String SCALARCODECPROPERTY = "osi.linecode.scalar";
+
+	/**
+	 * generates a creator, which builds stacks with the default maximal
+	 * transmission unit of 1500 bytes
+	 */
+	public CreateInstances() {
+		this(DEFAULTMTU);
+	}
+
+	/**
+	 * generates a creator, which builds stacks with the given maximal transmission
+	 * unit.<br>
+	 * The limits of all layers are derived from the maximal transmission unit of
+	 * the data link layer. Larger frames carry more data per frame header, jumbo
+	 * frames with up to 9000 bytes are supported.
+	 * 
+	 * @param mtu maximal number of bytes of the service data unit of a frame
+	 */
+	public CreateInstances(int mtu) {
+		this(mtu, false);
+	}
+
+	/**
+	 * generates a creator, which builds stacks with the given maximal transmission
+	 * unit and line code.<br>
+	 * In the loopback mode all physical layers and the medium use a
+	 * {@link PassthroughCodec}, so the frames are handed from the sender to the
+	 * data link layers of the receivers as raw bytes. All other layers process
+	 * their protocol control information as usual.
+	 * 
+	 * @param mtu      maximal number of bytes of the service data unit of a frame
+	 * @param loopback <code>true</code> to pass the frames through without 4B5B
+	 *                 line coding
+	 */
+	public CreateInstances(int mtu, boolean loopback) {
+		this.mtu = mtu;
+		this.loopback = loopback;
+		this.medium = new SharedMedium(this.createCodec());
+		this.pipeline = new ReceivePipeline(medium, ForkJoinPool.commonPool());
+	}
 
 	/**
 	 * generates a senders instance with the Transport Layer as access point<br>
@@ -39,11 +114,11 @@ public class CreateInstances {
 	 */
 	public DataTransfer createSenderInstance(String[] sourceInfo) {
 		// assign codec in which the data is going to be transmitted
-		Codec codec = new Codec4B5B();
+		Codec codec = this.createCodec();
 		PHY physicalLayer = new PHY(codec);
 		// instantiate a data link layer, set its source info, lower layer and assign
 		// this layer as upper layer to the lower layer
-		DataLink dataLinkLayer = new DataLink(sourceInfo[0].getBytes(), physicalLayer);
+		DataLink dataLinkLayer = new DataLink(sourceInfo[0].getBytes(), physicalLayer, mtu);
 		// instantiate a network layer, set its source info, lower layer and assign
 		// this layer as upper layer to the lower layer
 		Network networkLayer = new Network(sourceInfo[1].getBytes(), dataLinkLayer);
@@ -53,6 +128,8 @@ public class CreateInstances {
 		// instantiate an application layer, set its lower layer and assign
 		// this layer as upper layer to the lower layer
 		DataTransfer applicationLayer = new DataTransfer(transportLayer);
+		// wrap and encode the fragments of large data on all cores
+		applicationLayer.setParallelSending(true);
 		return applicationLayer;
 	}
 
@@ -69,12 +146,14 @@ public class CreateInstances {
 	 * @return <code>HashMap</code> with a new added receiver instance
 	 */
 	public BuildFile createReceiverInstance(String[] sourceInfo) {
-		Codec codec = new Codec4B5B();
+		Codec codec = this.createCodec();
 		// assign codec in which the data is going to be received
 		PHY physicalLayer = new PHY(codec);
+		// decode only the header of frames for other receivers
+		physicalLayer.setLazyDecoding(true);
 		// instantiate a data link layer, set its source info, lower layer and assign
 		// this layer as upper layer to the lower layer
-		DataLink dataLinkLayer = new DataLink(sourceInfo[1].getBytes(), physicalLayer);
+		DataLink dataLinkLayer = new DataLink(sourceInfo[1].getBytes(), physicalLayer, mtu);
 		// instantiate a network layer, set its source info, lower layer and assign
 		// this layer as upper layer to the lower layer
 		Network networkLayer = new Network(sourceInfo[2].getBytes(), dataLinkLayer);
@@ -84,13 +163,86 @@ public class CreateInstances {
 		// instantiate an application layer, set its lower layer and assign
 		// this layer as upper layer to the lower layer
 		DataTransfer applicationLayer = new DataTransfer(transportLayer);
+		// the received files are written to disk instead of being held in memory, so
+		// they may be as large as a sender can send
+		applicationLayer.setMaxTransferSize(Integer.MAX_VALUE);
 		// add the receiver access pointer to a HashMap as key with the receivers name
 		// as value
 		receiverAccess.put(physicalLayer, sourceInfo[0]);
-		BuildFile builder = new BuildFile(receiverAccess, applicationLayer);
+		// attach the receiver to the medium, which indexes it by its data link address
+		medium.attach(physicalLayer);
+		if (ringMedium != null) {
+			ringMedium.attach(physicalLayer);
+		}
+		if (Metrics.isEnabled()) {
+			// the received frames and bytes can be watched by the name of the receiver
+			physicalLayer.getReceiverMetrics().register(sourceInfo[0]);
+		}
+		// the builder writes every received fragment directly into the receivers file
+		BuildFile builder = new BuildFile(receiverAccess, applicationLayer, sourceInfo[0]);
 		return builder;
 	}
 
+	private Codec createCodec() {
+		if (loopback) {
+			return new PassthroughCodec();
+		} else if (Boolean.getBoolean(SCALARCODECPROPERTY)) {
+			return new Codec4B5B();
+		} else {
+			// both codecs produce the same line code, the word codec is just faster
+			return new WordCodec4B5B();
+		}
+	}
+
+	/**
+	 * grants access to the medium all receivers are attached to
+	 * 
+	 * @return the shared medium
+	 */
+	public SharedMedium getMedium() {
+		return medium;
+	}
+
+	/**
+	 * grants access to the ring medium, which is created on the first request.<br>
+	 * All receivers created so far and all receivers created later are attached
+	 * to the ring medium and each of them takes the frames on its own thread. A
+	 * transfer should either be put on the ring medium or be received through the
+	 * pipeline, because a receiver must not take two frames at the same time.
+	 * 
+	 * @return the ring medium
+	 */
+	public RingMedium getRingMedium() {
+		if (ringMedium == null) {
+			ringMedium = new RingMedium();
+			for (PHY receiver : receiverAccess.keySet()) {
+				ringMedium.attach(receiver);
+			}
+		}
+		return ringMedium;
+	}
+
+	/**
+	 * closes the ring medium, if it was requested, and stops the threads of its
+	 * receivers
+	 */
+	@Override
+	public void close() {
+		if (ringMedium != null) {
+			ringMedium.close();
+			ringMedium = null;
+		}
+	}
+
+	/**
+	 * grants access to the pipeline which receives the frames of the medium
+	 * 
+	 * @return the receive pipeline
+	 */
+	public ReceivePipeline getReceivePipeline() {
+		return pipeline;
+	}
+
 	/**
 	 * ensures that the input data contains the required data at the required
 	 * spot.<br>
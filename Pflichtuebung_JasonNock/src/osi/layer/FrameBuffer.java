@@ -0,0 +1,430 @@
+package osi.layer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * A frame buffer holds a data unit while it travels through the layers.<br>
+ * The data unit is a window within a byte array. In front of the window there
+ * is free space (headroom), so that each layer can write its protocol control
+ * information directly in front of the data unit of its upper layer without
+ * copying the data unit into a new array. Behind the window there can be free
+ * space (tailroom) for a filler.<br>
+ * On the receiving side each layer pulls its protocol control information
+ * from the front of the window, so the data unit is handed to the upper layer
+ * without being copied as well.<br>
+ * A frame buffer generated by {@link #acquire(int, int)} takes its array from
+ * the {@link FramePool} and has to be released by its owner as soon as the
+ * frame is processed.<br>
+ * While the PCIs are pulled, the layers note the source addresses and the
+ * source port of the frame, so the application layer can tell the transfers
+ * of different senders apart.
+ * </p>
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class FrameBuffer {
+
+	/**
+	 * the array holding the data unit
+	 */
+	private byte[] buffer;
+
+	/**
+	 * index of the first byte of the data unit
+	 */
+	private int start;
+
+	/**
+	 * index behind the last byte of the data unit
+	 */
+	private int end;
+
+	/**
+	 * <code>true</code> while the array belongs to the frame pool
+	 */
+	private boolean pooled;
+
+	/**
+	 * <code>true</code> after the frame buffer is released
+	 */
+	private boolean released;
+
+	/**
+	 * watch of the leak detection, null if it is switched off
+	 */
+	private FramePool.Lease lease;
+
+	/**
+	 * data link address of the sender, {@link Address#NOMAC} until the PCI of the
+	 * data link layer is pulled
+	 */
+	private long sourceLinkAddress = Address.NOMAC;
+
+	/**
+	 * network address of the sender
+	 */
+	private int sourceNetworkAddress;
+
+	/**
+	 * port of the sender
+	 */
+	private short sourcePort;
+
+	/**
+	 * generates an empty frame buffer with the given headroom and space for the
+	 * given number of data bytes behind it
+	 *
+	 * @param headroom - number of bytes reserved for protocol control information
+	 * @param capacity - number of bytes reserved for the data unit
+	 */
+	public FrameBuffer(int headroom, int capacity) {
+		this.buffer = new byte[headroom + capacity];
+		this.start = headroom;
+		this.end = headroom;
+	}
+
+	private FrameBuffer(byte[] buffer, int start, int end) {
+		this.buffer = buffer;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * generates a frame buffer holding the given data unit with the given
+	 * headroom.<br>
+	 * The data unit gets copied into the frame buffer once.
+	 *
+	 * @param headroom - number of bytes reserved for protocol control information
+	 * @param dataUnit - the data unit of the frame
+	 * @return <code>FrameBuffer</code> holding a copy of the data unit
+	 */
+	public static FrameBuffer copyOf(int headroom, byte[] dataUnit) {
+		FrameBuffer frame = new FrameBuffer(headroom, dataUnit.length);
+		frame.append(dataUnit, 0, dataUnit.length);
+		return frame;
+	}
+
+	/**
+	 * generates an empty frame buffer like {@link #FrameBuffer(int, int)}, whose
+	 * array is taken from the frame pool.<br>
+	 * The frame buffer has to be released by {@link #release()}.
+	 *
+	 * @param headroom - number of bytes reserved for protocol control information
+	 * @param capacity - number of bytes reserved for the data unit
+	 * @return <code>FrameBuffer</code> with a pooled array
+	 */
+	public static FrameBuffer acquire(int headroom, int capacity) {
+		FrameBuffer frame = new FrameBuffer(FramePool.acquire(headroom + capacity), headroom, headroom);
+		frame.pooled = true;
+		frame.lease = FramePool.lease(frame);
+		return frame;
+	}
+
+	/**
+	 * generates a frame buffer like {@link #copyOf(int, byte[])}, whose array is
+	 * taken from the frame pool.<br>
+	 * The frame buffer has to be released by {@link #release()}.
+	 *
+	 * @param headroom - number of bytes reserved for protocol control information
+	 * @param dataUnit - the data unit of the frame
+	 * @return <code>FrameBuffer</code> holding a copy of the data unit
+	 */
+	public static FrameBuffer acquireCopyOf(int headroom, byte[] dataUnit) {
+		FrameBuffer frame = acquire(headroom, dataUnit.length);
+		frame.append(dataUnit, 0, dataUnit.length);
+		return frame;
+	}
+
+	/**
+	 * generates a frame buffer whose data unit is the whole given array.<br>
+	 * The array is not copied, so changes of the array are visible in the frame
+	 * buffer.
+	 *
+	 * @param dataUnit - the data unit of the frame
+	 * @return <code>FrameBuffer</code> viewing the given array
+	 */
+	public static FrameBuffer wrap(byte[] dataUnit) {
+		return new FrameBuffer(dataUnit, 0, dataUnit.length);
+	}
+
+	/**
+	 * generates a frame buffer viewing the same array and data unit.<br>
+	 * The window of the new frame buffer can be moved independently, so the same
+	 * frame can be handed to several receivers. The new frame buffer is not
+	 * pooled, the array is released by releasing this frame buffer.
+	 *
+	 * @return <code>FrameBuffer</code> viewing the data unit of this frame buffer
+	 */
+	public FrameBuffer duplicate() {
+		return new FrameBuffer(buffer, start, end);
+	}
+
+	/**
+	 * releases the frame buffer.<br>
+	 * If the array was taken from the frame pool, it is put back into the pool and
+	 * the frame buffer must not be used anymore. Releasing a frame buffer which is
+	 * not pooled has no effect on its array.
+	 *
+	 * @throws IllegalStateException if the frame buffer was released before
+	 */
+	public void release() {
+		if (released) {
+			throw new IllegalStateException("Frame buffer already released!!!");
+		}
+		released = true;
+		if (pooled) {
+			if (lease != null) {
+				lease.end();
+			}
+			FramePool.release(buffer);
+			pooled = false;
+			// any further access to the array fails instead of reading another frame
+			buffer = null;
+		}
+	}
+
+	/**
+	 * reserves the given number of bytes behind the data unit to be written
+	 * directly into the array.<br>
+	 * The reserved bytes become the end of the data unit. Bytes, which are not
+	 * written, can be cut by {@link #trimTo(int)}.
+	 *
+	 * @param length - number of bytes to reserve
+	 * @return <code>int</code> index in the array at which the bytes have to be
+	 *         written
+	 */
+	public int extend(int length) {
+		ensureTailroom(length);
+		int offset = end;
+		end += length;
+		return offset;
+	}
+
+	/**
+	 * appends bytes behind the data unit
+	 *
+	 * @param source - array holding the bytes to append
+	 * @param offset - index of the first byte to append
+	 * @param length - number of bytes to append
+	 */
+	public void append(byte[] source, int offset, int length) {
+		ensureTailroom(length);
+		System.arraycopy(source, offset, buffer, end, length);
+		end += length;
+	}
+
+	/**
+	 * appends bytes of a byte buffer behind the data unit.<br>
+	 * The position of the byte buffer is not changed, so several threads can
+	 * append from the same byte buffer.
+	 *
+	 * @param source - byte buffer holding the bytes to append
+	 * @param offset - index of the first byte to append
+	 * @param length - number of bytes to append
+	 */
+	public void append(ByteBuffer source, int offset, int length) {
+		ensureTailroom(length);
+		ByteBuffer window = source.duplicate();
+		window.position(offset);
+		window.get(buffer, end, length);
+		end += length;
+	}
+
+	/**
+	 * elongates the data unit with zero bytes until it reaches the given length
+	 *
+	 * @param length - minimal length of the data unit
+	 */
+	public void padTo(int length) {
+		int fillerLength = length - getLength();
+		if (fillerLength > 0) {
+			ensureTailroom(fillerLength);
+			Arrays.fill(buffer, end, end + fillerLength, (byte) 0);
+			end += fillerLength;
+		}
+	}
+
+	/**
+	 * reserves the given number of bytes in front of the data unit for the
+	 * protocol control information of a layer.<br>
+	 * The reserved bytes become the beginning of the data unit. If the headroom is
+	 * insufficient the frame buffer gets enlarged.
+	 *
+	 * @param length - number of bytes of the protocol control information
+	 * @return <code>int</code> index in the array at which the protocol control
+	 *         information has to be written
+	 */
+	public int push(int length) {
+		if (start < length) {
+			// the headroom is insufficient, move the data unit into a larger array
+			byte[] enlarged = this.allocate(buffer.length - start + length);
+			System.arraycopy(buffer, start, enlarged, length, end - start);
+			end = end - start + length;
+			start = length;
+			this.replace(enlarged);
+		}
+		start -= length;
+		return start;
+	}
+
+	/**
+	 * removes the given number of bytes of protocol control information from the
+	 * front of the data unit.<br>
+	 * The removed bytes stay in the array, so they can still be read at the
+	 * returned index.
+	 *
+	 * @param length - number of bytes of the protocol control information
+	 * @return <code>int</code> index in the array at which the removed protocol
+	 *         control information starts
+	 */
+	public int pull(int length) {
+		if (getLength() < length) {
+			throw new IndexOutOfBoundsException("Data unit shorter than " + length + " bytes");
+		}
+		int offset = start;
+		start += length;
+		return offset;
+	}
+
+	/**
+	 * cuts the data unit to the given length, the bytes behind are ignored
+	 *
+	 * @param length - new length of the data unit
+	 */
+	public void trimTo(int length) {
+		if (length < getLength()) {
+			end = start + length;
+		}
+	}
+
+	/**
+	 * grants access to the array holding the data unit
+	 *
+	 * @return the array holding the data unit
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * grants access to the index of the first byte of the data unit
+	 *
+	 * @return index of the first byte of the data unit
+	 */
+	public int getOffset() {
+		return start;
+	}
+
+	/**
+	 * grants access to the length of the data unit
+	 *
+	 * @return number of bytes of the data unit
+	 */
+	public int getLength() {
+		return end - start;
+	}
+
+	/**
+	 * grants access to the data link address of the sender
+	 *
+	 * @return the address in the lower 48 bits or {@link Address#NOMAC} if the
+	 *         frame did not pass the data link layer
+	 */
+	public long getSourceLinkAddress() {
+		return sourceLinkAddress;
+	}
+
+	/**
+	 * notes the data link address of the sender
+	 *
+	 * @param sourceLinkAddress - the address read from the PCI
+	 */
+	public void setSourceLinkAddress(long sourceLinkAddress) {
+		this.sourceLinkAddress = sourceLinkAddress;
+	}
+
+	/**
+	 * grants access to the network address of the sender
+	 *
+	 * @return the address or 0 if the frame did not pass the network layer
+	 */
+	public int getSourceNetworkAddress() {
+		return sourceNetworkAddress;
+	}
+
+	/**
+	 * notes the network address of the sender
+	 *
+	 * @param sourceNetworkAddress - the address read from the PCI
+	 */
+	public void setSourceNetworkAddress(int sourceNetworkAddress) {
+		this.sourceNetworkAddress = sourceNetworkAddress;
+	}
+
+	/**
+	 * grants access to the port of the sender
+	 *
+	 * @return the port or 0 if the frame did not pass the transport layer
+	 */
+	public short getSourcePort() {
+		return sourcePort;
+	}
+
+	/**
+	 * notes the port of the sender
+	 *
+	 * @param sourcePort - the port read from the PCI
+	 */
+	public void setSourcePort(short sourcePort) {
+		this.sourcePort = sourcePort;
+	}
+
+	/**
+	 * copies the data unit into a new array
+	 *
+	 * @return <code>byte[]</code> holding the data unit
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOfRange(buffer, start, end);
+	}
+
+	/**
+	 * copies the data units of a batch of frame buffers into new arrays
+	 *
+	 * @param frames - the frame buffers, null entries are kept
+	 * @return <code>List</code> of the data units in the order of the frame
+	 *         buffers
+	 */
+	public static List<byte[]> toByteArrays(List<FrameBuffer> frames) {
+		List<byte[]> dataUnits = new ArrayList<byte[]>(frames.size());
+		for (FrameBuffer frame : frames) {
+			dataUnits.add((frame != null) ? frame.toByteArray() : null);
+		}
+		return dataUnits;
+	}
+
+	private void ensureTailroom(int length) {
+		if (buffer.length - end < length) {
+			// the tailroom is insufficient, move the data unit into a larger array
+			byte[] enlarged = this.allocate(end + length);
+			System.arraycopy(buffer, 0, enlarged, 0, end);
+			this.replace(enlarged);
+		}
+	}
+
+	private byte[] allocate(int length) {
+		return pooled ? FramePool.acquire(length) : new byte[length];
+	}
+
+	private void replace(byte[] enlarged) {
+		if (pooled) {
+			FramePool.release(buffer);
+		}
+		buffer = enlarged;
+	}
+}
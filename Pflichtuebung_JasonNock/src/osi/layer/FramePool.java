@@ -0,0 +1,278 @@
+package osi.layer;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * The frame pool keeps the arrays of released frame buffers for reuse.<br>
+ * Every frame travelling through the layers needs an array for its data unit
+ * and its PCIs and the received frames need an array for the decoded frame.
+ * Those arrays live only while the frame is processed, so at high frame rates
+ * allocating them keeps the young generation of the garbage collector busy.
+ * The pool hands out arrays whose length is a power of two between
+ * {@value #MINLENGTH} and {@value #MAXLENGTH} bytes, larger arrays are not
+ * pooled. Every length has {@value #STRIPES} slots. A thread looks for an array
+ * starting at the slot of its thread id and puts it back in the same way, so
+ * threads mostly use different slots. Every thread id remembers where it took
+ * or put back its last array, so the arrays of a batch of frames are taken and
+ * put back like on a stack without probing empty or full slots in vain. The
+ * slots are taken and filled by compare and set, so threads do not block each
+ * other. An array released by another thread than the one which acquired it is
+ * found as well, e.g. the frames a receive pipeline decodes on its workers and
+ * delivers on the calling thread.
+ * <br>
+ * The pool can be switched off by the system property
+ * {@value #DISABLEDPROPERTY}. If the system property
+ * {@value #LEAKDETECTIONPROPERTY} is set to true, every pooled frame buffer is
+ * watched by a {@link Cleaner}. A frame buffer which becomes unreachable without
+ * being released is counted as leak and the place it was acquired at is
+ * reported.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public final class FramePool {
+
+	/**
+	 * system property, which switches the pool off at startup
+	 */
+	public final static String DISABLEDPROPERTY = "osi.pool.disabled";
+
+	/**
+	 * system property, which switches the leak detection on at startup
+	 */
+	public final static String LEAKDETECTIONPROPERTY = "osi.pool.leakdetection";
+
+	/**
+	 * length of the smallest pooled array
+	 */
+	public final static int MINLENGTH = 1 << 6;
+
+	/**
+	 * length of the largest pooled array, which holds a jumbo frame with all PCIs
+	 */
+	public final static int MAXLENGTH = 1 << 14;
+
+	/**
+	 * number of slots for the arrays of every length, has to be a power of two
+	 */
+	public final static int STRIPES = 32;
+
+	private final static int CLASSCOUNT = Integer.numberOfTrailingZeros(MAXLENGTH)
+			- Integer.numberOfTrailingZeros(MINLENGTH) + 1;
+
+	private final static AtomicReferenceArray<byte[]> SLOTS = new AtomicReferenceArray<byte[]>(CLASSCOUNT * STRIPES);
+	// index behind the last array a thread id put back, relative to its stripe, a
+	// stale value only costs probes
+	private final static int[] TOPS = new int[CLASSCOUNT * STRIPES];
+	private final static LongAdder ALLOCATED = new LongAdder();
+	private final static LongAdder REUSED = new LongAdder();
+	private final static LongAdder OUTSTANDING = new LongAdder();
+	private final static LongAdder LEAKS = new LongAdder();
+	private final static Cleaner CLEANER = Cleaner.create();
+
+	private static volatile boolean enabled = !Boolean.getBoolean(DISABLEDPROPERTY);
+	private static volatile boolean leakDetection = Boolean.getBoolean(LEAKDETECTIONPROPERTY);
+	private static volatile Throwable lastLeak;
+
+	private FramePool() {
+	}
+
+	/**
+	 * hands out an array with at least the given length.<br>
+	 * The content of the array is undefined.
+	 *
+	 * @param length minimal number of bytes of the array
+	 * @return <code>byte[]</code> from the pool or a new array
+	 */
+	public static byte[] acquire(int length) {
+		if (!enabled || length > MAXLENGTH) {
+			return new byte[length];
+		}
+		int sizeClass = sizeClass(length);
+		int stripe = stripe();
+		int top = sizeClass * STRIPES + stripe;
+		int hint = TOPS[top];
+		// probe downwards from the last array put back
+		for (int i = 1; i <= STRIPES; i++) {
+			int position = (hint - i) & (STRIPES - 1);
+			int slot = sizeClass * STRIPES + ((stripe + position) & (STRIPES - 1));
+			byte[] array = SLOTS.get(slot);
+			if (array != null && SLOTS.compareAndSet(slot, array, null)) {
+				TOPS[top] = position;
+				REUSED.increment();
+				return array;
+			}
+		}
+		// all slots are empty
+		ALLOCATED.increment();
+		return new byte[MINLENGTH << sizeClass];
+	}
+
+	/**
+	 * puts an array back into the pool.<br>
+	 * Arrays whose length is not pooled are left to the garbage collector, so are
+	 * the arrays if all slots are full. The array must not be used after it is
+	 * released.
+	 *
+	 * @param array the array to put back
+	 */
+	public static void release(byte[] array) {
+		int length = array.length;
+		if (!enabled || length < MINLENGTH || length > MAXLENGTH || Integer.bitCount(length) != 1) {
+			return;
+		}
+		int sizeClass = sizeClass(length);
+		int stripe = stripe();
+		int top = sizeClass * STRIPES + stripe;
+		int hint = TOPS[top];
+		// probe upwards from behind the last array put back
+		for (int i = 0; i < STRIPES; i++) {
+			int position = (hint + i) & (STRIPES - 1);
+			int slot = sizeClass * STRIPES + ((stripe + position) & (STRIPES - 1));
+			if (SLOTS.get(slot) == null && SLOTS.compareAndSet(slot, null, array)) {
+				TOPS[top] = position + 1;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * starts to watch a pooled frame buffer, if the leak detection is switched on
+	 *
+	 * @param frame the frame buffer, which has to be released
+	 * @return <code>Lease</code> to end when the frame buffer is released or null
+	 *         if the leak detection is switched off
+	 */
+	static Lease lease(FrameBuffer frame) {
+		if (!leakDetection) {
+			return null;
+		}
+		OUTSTANDING.increment();
+		Lease lease = new Lease(new Throwable("Frame buffer was not released!!!"));
+		lease.cleanable = CLEANER.register(frame, lease);
+		return lease;
+	}
+
+	/**
+	 * determines if the pool is switched on
+	 *
+	 * @return <code>true</code> if arrays are reused
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * switches the pool on or off
+	 *
+	 * @param enabled <code>true</code> to reuse arrays
+	 */
+	public static void setEnabled(boolean enabled) {
+		FramePool.enabled = enabled;
+	}
+
+	/**
+	 * switches the leak detection on or off.<br>
+	 * Only frame buffers acquired while the leak detection is switched on are
+	 * watched.
+	 *
+	 * @param leakDetection <code>true</code> to watch the pooled frame buffers
+	 */
+	public static void setLeakDetection(boolean leakDetection) {
+		FramePool.leakDetection = leakDetection;
+	}
+
+	/**
+	 * grants access to the number of arrays the pool had to allocate
+	 *
+	 * @return number of allocated arrays
+	 */
+	public static long getAllocatedCount() {
+		return ALLOCATED.sum();
+	}
+
+	/**
+	 * grants access to the number of arrays handed out again
+	 *
+	 * @return number of reused arrays
+	 */
+	public static long getReusedCount() {
+		return REUSED.sum();
+	}
+
+	/**
+	 * grants access to the number of watched frame buffers, which are not
+	 * released yet
+	 *
+	 * @return number of outstanding frame buffers
+	 */
+	public static long getOutstandingCount() {
+		return OUTSTANDING.sum();
+	}
+
+	/**
+	 * grants access to the number of watched frame buffers, which became
+	 * unreachable without being released
+	 *
+	 * @return number of leaked frame buffers
+	 */
+	public static long getLeakCount() {
+		return LEAKS.sum();
+	}
+
+	/**
+	 * grants access to the place the last leaked frame buffer was acquired at
+	 *
+	 * @return <code>Throwable</code> holding the stack trace of the acquisition or
+	 *         null if no leak was detected
+	 */
+	public static Throwable getLastLeak() {
+		return lastLeak;
+	}
+
+	private static int sizeClass(int length) {
+		// index of the smallest power of two not below the length
+		int bits = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(length, MINLENGTH) - 1);
+		return bits - Integer.numberOfTrailingZeros(MINLENGTH);
+	}
+
+	private static int stripe() {
+		return (int) Thread.currentThread().getId() & (STRIPES - 1);
+	}
+
+	/**
+	 * the watch of a pooled frame buffer, which is ended by releasing the frame
+	 * buffer or by the cleaner if the frame buffer became unreachable
+	 */
+	static final class Lease implements Runnable {
+
+		private final Throwable acquisition;
+		private volatile boolean released;
+		private Cleaner.Cleanable cleanable;
+
+		private Lease(Throwable acquisition) {
+			this.acquisition = acquisition;
+		}
+
+		/**
+		 * ends the watch of a released frame buffer
+		 */
+		void end() {
+			released = true;
+			cleanable.clean();
+		}
+
+		@Override
+		public void run() {
+			OUTSTANDING.decrement();
+			if (!released) {
+				LEAKS.increment();
+				lastLeak = acquisition;
+				acquisition.printStackTrace();
+			}
+		}
+	}
+}
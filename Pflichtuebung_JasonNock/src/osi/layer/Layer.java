@@ -1,5 +1,9 @@
 package osi.layer;
 
+import osi.layer.application.DataTransfer;
+import osi.metrics.FrameEvent;
+import osi.metrics.LayerMetrics;
+
 /**
  * <p>
  * The Open Systems Interconnection model (OSI model) is a conceptual model that
@@ -30,18 +34,144 @@ public class Layer {
 	 */
 	protected Layer lowerLayer;
 
+	/**
+	 * counts the frames of all instances of this layer class
+	 */
+	protected final LayerMetrics metrics;
+
+	// names the layer in its metrics and flight recorder events
+	private final String layerName;
+
 	/**
 	 * generates a new instance of a {@code Layer} object with a given sub layer
 	 * 
 	 * @param lowerLayer - the layer below this
 	 */
 	public Layer(Layer lowerLayer) {
+		this.layerName = this.getClass().getSimpleName();
+		this.metrics = LayerMetrics.forLayer(layerName);
 		if (lowerLayer != null) {
 			this.lowerLayer = lowerLayer;
 			lowerLayer.setUpperLayer(this);
 		}
 	}
 
+	/**
+	 * determines the number of bytes of this layers protocol control
+	 * information<br>
+	 * Layers that add protocol control information override this method.
+	 * 
+	 * @return number of bytes of the protocol control information
+	 */
+	protected int getPCIBytes() {
+		return 0;
+	}
+
+	/**
+	 * determines how many bytes have to be reserved in front of a service data
+	 * unit of this layer, so that this layer and all lower layers can write their
+	 * protocol control information into the same {@link FrameBuffer}
+	 * 
+	 * @return number of bytes of the protocol control information of this and all
+	 *         lower layers
+	 */
+	public int getHeadroom() {
+		int headroom = this.getPCIBytes();
+		if (lowerLayer != null) {
+			headroom += lowerLayer.getHeadroom();
+		}
+		return headroom;
+	}
+
+	/**
+	 * determines the maximal number of bytes of a service data unit of this
+	 * layer<br>
+	 * It is derived from the maximal transmission unit of the data link layer
+	 * below, which is reduced by the protocol control information of every layer
+	 * above the data link layer up to this layer.
+	 * 
+	 * @return maximal number of bytes of a service data unit
+	 */
+	public int getMaxDataSize() {
+		if (lowerLayer != null) {
+			return lowerLayer.getMaxDataSize() - this.getPCIBytes();
+		}
+		return 0;
+	}
+
+	/**
+	 * grants access to the upper layer
+	 * 
+	 * @return the layer above this or null if this is the highest layer
+	 */
+	public Layer getUpperLayer() {
+		return upperLayer;
+	}
+
+	/**
+	 * grants access to the metrics of this layer
+	 * 
+	 * @return the metrics shared by all instances of this layer class
+	 */
+	public LayerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * starts a flight recorder event of a primitive of this layer
+	 * 
+	 * @param primitive primitive processing the frame
+	 * @return the event, which is only filled if it is enabled in a recording
+	 */
+	protected FrameEvent beginEvent(String primitive) {
+		return new FrameEvent(layerName, primitive);
+	}
+
+	/**
+	 * starts a flight recorder event of a primitive of this layer and describes
+	 * the frame
+	 * 
+	 * @param primitive primitive processing the frame
+	 * @param frame     the processed frame
+	 * @param withPCI   <code>true</code> if the window of the frame starts with
+	 *                  the PCI of this layer, <code>false</code> if it starts
+	 *                  with the PCI of the upper layer
+	 * @return the event, which is only filled if it is enabled in a recording
+	 */
+	protected FrameEvent beginEvent(String primitive, FrameBuffer frame, boolean withPCI) {
+		FrameEvent event = this.beginEvent(primitive);
+		this.describeEvent(event, frame, withPCI);
+		return event;
+	}
+
+	/**
+	 * describes the frame of a flight recorder event by its size and the fragment
+	 * it carries.<br>
+	 * The fragment header of the application layer is found behind the PCIs of
+	 * all layers from this layer up to the application layer.
+	 * 
+	 * @param event   the event of the frame
+	 * @param frame   the processed frame
+	 * @param withPCI <code>true</code> if the window of the frame starts with the
+	 *                PCI of this layer
+	 */
+	protected void describeEvent(FrameEvent event, FrameBuffer frame, boolean withPCI) {
+		if (event.isEnabled()) {
+			event.setFrameSize(frame.getLength());
+			int headerIndex = frame.getOffset();
+			Layer layer = withPCI ? this : this.upperLayer;
+			while (layer != null && layer.upperLayer != null) {
+				headerIndex += layer.getPCIBytes();
+				layer = layer.upperLayer;
+			}
+			if (layer instanceof DataTransfer
+					&& headerIndex + DataTransfer.getHeaderBytes() <= frame.getOffset() + frame.getLength()) {
+				event.setFragment(DataTransfer.readTransferId(frame.getBuffer(), headerIndex),
+						DataTransfer.readSequenceNumber(frame.getBuffer(), headerIndex));
+			}
+		}
+	}
+
 	/**
 	 * with this the communication with the upper layer is realized
 	 * 
@@ -3,31 +3,73 @@ package osi.layer.application;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
 import edu.fra.uas.oop.Terminal;
 import osi.layer.physical.PHY;
+import osi.metrics.FileEvent;
 
-public class BuildFile {
+public class BuildFile implements FragmentSinkFactory {
 
 	private DataTransfer applicationInstance;
 	private HashMap<PHY, String> receiverAccess;
+	private String fileName;
+	// names of the files, which are currently written
+	private final Set<String> openFiles = new HashSet<String>();
 	
 	public BuildFile(HashMap<PHY, String> receiverAccess, DataTransfer applicationLayer) {
 		this.receiverAccess = receiverAccess;
 		this.applicationInstance = applicationLayer;
 	}
 
+	/**
+	 * generates a file builder, which writes the fragments received by the
+	 * application layer directly into the file of the receiver, as soon as they
+	 * arrive. Transfers received at the same time are written into files of
+	 * their own.
+	 * 
+	 * @param receiverAccess   contains the receivers names
+	 * @param applicationLayer the application layer of the receiver
+	 * @param fileName         name of the receiver, the file is named after it
+	 */
+	public BuildFile(HashMap<PHY, String> receiverAccess, DataTransfer applicationLayer, String fileName) {
+		this(receiverAccess, applicationLayer);
+		this.fileName = fileName;
+		applicationLayer.setFragmentSinkFactory(this);
+	}
+
 	public HashMap<PHY, String> getReceiverAccess() {
 		return receiverAccess;
 	}
 
+	/**
+	 * grants access to the application layer of the receiver, e.g. to register a
+	 * {@link TransferListener}, which is called once the file is complete
+	 * 
+	 * @return the application layer, which hands the fragments to this builder
+	 */
+	public DataTransfer getApplicationLayer() {
+		return applicationInstance;
+	}
+
 	public void createFile(String fileName) {
 		try {
-			FileOutputStream fileCreator = new FileOutputStream(fileName + ".gif");
 			byte[] buffer = applicationInstance.getRecvData();
+			if (buffer == null) {
+				// the file was already written by the fragments
+				return;
+			}
+			FileEvent event = new FileEvent(fileName + ".gif", buffer.length);
+			FileOutputStream fileCreator = new FileOutputStream(fileName + ".gif");
 			fileCreator.write(buffer);
 			fileCreator.close();
+			event.finish(FileEvent.WRITTEN);
 			Terminal.printLine(fileName + ": " + buffer.length + " bytes");
 			applicationInstance.resetRecvData();
 		} catch (FileNotFoundException e) {
@@ -38,5 +80,99 @@ public class BuildFile {
 		}
 		
 	}
-}
 
+	/**
+	 * hands a new transfer a file of its own.<br>
+	 * The file is named after the receiver. If another transfer of the receiver
+	 * is still written, the file is numbered, e.g. <code>alice-2.gif</code>, so
+	 * transfers received at the same time do not overwrite each other.
+	 */
+	@Override
+	public FragmentSink newSink(SessionKey session) {
+		synchronized (openFiles) {
+			String name = fileName;
+			for (int number = 2; openFiles.contains(name); number++) {
+				name = fileName + "-" + number;
+			}
+			openFiles.add(name);
+			return new FileSink(name);
+		}
+	}
+
+	private void closeFile(String name) {
+		synchronized (openFiles) {
+			openFiles.remove(name);
+		}
+	}
+
+	/**
+	 * writes the fragments of a single transfer into its file
+	 */
+	private class FileSink implements FragmentSink {
+
+		private final String name;
+		private FileChannel fileChannel;
+		private int fileSize;
+		private FileEvent fileEvent;
+
+		private FileSink(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * opens the file of the transfer when its first fragment arrives
+		 */
+		@Override
+		public void open(int totalSize) throws IOException {
+			fileEvent = new FileEvent(name + ".gif", totalSize);
+			try {
+				fileChannel = FileChannel.open(Paths.get(name + ".gif"), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			} catch (IOException e) {
+				// the session is not opened, so the name is free again
+				fileEvent.finish(FileEvent.ABORTED);
+				closeFile(name);
+				throw e;
+			}
+			fileSize = totalSize;
+		}
+
+		/**
+		 * writes a fragment at its offset into the file
+		 */
+		@Override
+		public void write(ByteBuffer fragment, long offset) throws IOException {
+			long position = offset;
+			while (fragment.hasRemaining()) {
+				position += fileChannel.write(fragment, position);
+			}
+		}
+
+		/**
+		 * closes the complete file and prints the successfully received file
+		 */
+		@Override
+		public void complete() throws IOException {
+			try {
+				fileChannel.close();
+			} finally {
+				closeFile(name);
+			}
+			fileEvent.finish(FileEvent.WRITTEN);
+			Terminal.printLine(name + ": " + fileSize + " bytes");
+		}
+
+		/**
+		 * closes the incomplete file
+		 */
+		@Override
+		public void abort() throws IOException {
+			try {
+				fileChannel.close();
+			} finally {
+				closeFile(name);
+			}
+			fileEvent.finish(FileEvent.ABORTED);
+		}
+	}
+}
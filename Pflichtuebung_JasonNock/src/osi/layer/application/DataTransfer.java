@@ -1,20 +1,101 @@
 package osi.layer.application;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-import edu.fra.uas.oop.Terminal;
 import osi.layer.ConnectionlessServicePrimitives;
+import osi.layer.FrameBuffer;
 import osi.layer.Layer;
 import osi.layer.transport.Transport;
+import osi.metrics.FragmentationEvent;
+import osi.metrics.FrameEvent;
+import osi.metrics.Metrics;
 
+/**
+ * Application Layer of the given OSI model.<br>
+ * This layer splits data into fragments and reassembles received fragments.
+ * Every fragment carries a header with the identifier of its transfer, its
+ * sequence number, its offset within the transfer and the total size of the
+ * transfer. The sequence numbers count down, the last fragment sent has the
+ * sequence number 0. Received fragments are placed directly at their offset,
+ * so they can arrive in any order and duplicates are ignored. <br>
+ * Every received transfer gets its own session, which is found by the
+ * addresses and the port of the sender and by the transfer identifier, so the
+ * transfers of several senders can arrive interleaved and on several threads.
+ * A transfer of a single fragment needs no session. A session, which got no
+ * fragment for the session timeout, is discarded. <br>
+ * In the parallel sending mode the fragments are processed by the layers below
+ * on all available cores. The frames are still returned in sending order. <br>
+ * Frames can also be produced lazily from a byte buffer, e.g. a memory mapped
+ * file, so that only a few frames are held in memory at the same time. The
+ * binary frames are requested in batches, which pass the layers together. <br>
+ * If a {@link FragmentSinkFactory} is set, received fragments are not
+ * reassembled in memory, but handed at their offset to a sink, which every
+ * transfer gets of its own. <br>
+ * Transfers can be sent asynchronously and {@link TransferListener}s are told
+ * about completed transfers. Both run on an executor, which is the common fork
+ * join pool unless another one is set. A {@link FramePublisher} produces the
+ * frames of a transfer only as fast as its subscribers request them.
+ * 
+ * @author Jason Nock
+ * @version 2.8
+ */
 public class DataTransfer extends Layer implements ConnectionlessServicePrimitives {
 
-	private byte[] recvData;
+	private volatile byte[] recvData;
+	// the reassembly of every transfer, which is currently received
+	private final Map<SessionKey, ReassemblyBuffer> sessions = new ConcurrentHashMap<SessionKey, ReassemblyBuffer>();
+	private volatile int maxTransferSize = DEFAULTMAXTRANSFERSIZE;
+	private volatile long sessionTimeout = TimeUnit.MILLISECONDS.toNanos(DEFAULTSESSIONTIMEOUT);
+	// time by System.nanoTime() at which idle sessions are looked for next
+	private final AtomicLong nextEviction = new AtomicLong(System.nanoTime());
+	private final AtomicInteger transferCounter = new AtomicInteger();
+	private boolean parallelSending;
+	private volatile FragmentSinkFactory fragmentSinkFactory;
+	private Executor executor = ForkJoinPool.commonPool();
+	private final List<TransferListener> transferListeners = new CopyOnWriteArrayList<TransferListener>();
 
 	final static byte[] DATACOMPLETED = { 1 };
-	final static int SEQUENCEBYTES = 1;
-	final static int MAXFRAGMENTSIZE = 1464;
-	final static int SDUOFFSET = 1;
+	final static int TRANSFERIDBYTES = 2;
+	final static int SEQUENCEBYTES = 4;
+	final static int OFFSETBYTES = 4;
+	final static int TOTALSIZEBYTES = 4;
+	final static int PCIBYTES = TRANSFERIDBYTES + SEQUENCEBYTES + OFFSETBYTES + TOTALSIZEBYTES;
+	final static int FRAGMENTBATCHSIZE = 64;
+	// stays below the slots of the frame pool, so all frames of a batch reuse
+	// pooled arrays
+	final static int REQUESTBATCHSIZE = 16;
+
+	/**
+	 * maximal number of bytes of a received transfer, if no other maximum is set
+	 */
+	public final static int DEFAULTMAXTRANSFERSIZE = 1 << 26;
+
+	/**
+	 * milliseconds a session is kept without receiving a fragment, if no other
+	 * timeout is set
+	 */
+	public final static long DEFAULTSESSIONTIMEOUT = 10_000;
 
 	/**
 	 * This method constructs an instance of the layer.<br>
@@ -28,113 +109,673 @@ public class DataTransfer extends Layer implements ConnectionlessServicePrimitiv
 	}
 
 	/**
-	 * TODO
+	 * requests services from its lower layer and hands it its processed data.<br>
+	 * The fragment header gets written in front of the service data unit and the
+	 * frame is handed to the transport layer.
+	 * 
+	 * @param params the fragment header created by
+	 *               {@link #createFragmentHeader(int, int, int, int)}, the service
+	 *               data unit, the transport destination port, the network
+	 *               destination address and the data link destination address
+	 * @return <code>String</code> of encoded data to users interface.
 	 */
 	@Override
 	public String req(byte[]... params) {
-		byte[] seqNo = params[0];
-		byte[] sdu = params[1];
-		int dataSize = sdu.length;
-		byte[] transportDestPort = params[2];
-		byte[] networkDestAddr = params[3];
-		byte[] dataLinkDestAddr = params[4];
-		byte[] pdu = new byte[dataSize + SEQUENCEBYTES];
-		System.arraycopy(seqNo, 0, pdu, 0, SEQUENCEBYTES);
-		System.arraycopy(sdu, 0, pdu, SEQUENCEBYTES, dataSize);
-		return ((Transport) this.lowerLayer).req(transportDestPort, pdu, networkDestAddr, dataLinkDestAddr);
+		// copy the sdu once into a frame buffer with room for all PCIs
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[1]);
+		try {
+			return this.req(frame, params[0], params[2], params[3], params[4]);
+		} finally {
+			// the frame is encoded, so its array can be reused
+			frame.release();
+		}
+	}
+
+	/**
+	 * works like {@link #req(byte[]...)}, but returns the line code in its
+	 * bit-packed binary form
+	 */
+	@Override
+	public ByteBuffer reqBinary(byte[]... params) {
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[1]);
+		try {
+			return this.reqBinary(frame, params[0], params[2], params[3], params[4]);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * works like {@link #req(byte[]...)}, but the sdu is held by a frame buffer
+	 * and the fragment header is written into its headroom
+	 */
+	@Override
+	public String req(FrameBuffer frame, byte[]... params) {
+		long startTime = Metrics.startTime();
+		byte[] transportDestPort = params[1];
+		byte[] networkDestAddr = params[2];
+		byte[] dataLinkDestAddr = params[3];
+		this.addPCI(frame, params[0], 0);
+		String encodedPackage = ((Transport) this.lowerLayer).req(frame, transportDestPort, networkDestAddr,
+				dataLinkDestAddr);
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * works like {@link #req(FrameBuffer, byte[]...)}, but returns the line code
+	 * in its bit-packed binary form
+	 */
+	@Override
+	public ByteBuffer reqBinary(FrameBuffer frame, byte[]... params) {
+		long startTime = Metrics.startTime();
+		byte[] transportDestPort = params[1];
+		byte[] networkDestAddr = params[2];
+		byte[] dataLinkDestAddr = params[3];
+		this.addPCI(frame, params[0], 0);
+		ByteBuffer encodedPackage = ((Transport) this.lowerLayer).reqBinary(frame, transportDestPort, networkDestAddr,
+				dataLinkDestAddr);
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * works like {@link #reqBinary(FrameBuffer, byte[]...)}, but the sdus of a
+	 * batch of frames are handed to the transport layer together. The first
+	 * parameter holds the fragment headers of all frames one after another.
+	 * 
+	 * @throws IllegalArgumentException if there is not one fragment header for
+	 *                                  every frame
+	 */
+	@Override
+	public List<ByteBuffer> reqBatch(List<FrameBuffer> frames, byte[]... params) {
+		long startTime = Metrics.startTime();
+		byte[] fragmentHeaders = params[0];
+		if (fragmentHeaders.length != frames.size() * PCIBYTES) {
+			throw new IllegalArgumentException("Wrong size for fragment headers!!!");
+		}
+		for (int i = 0; i < frames.size(); i++) {
+			this.addPCI(frames.get(i), fragmentHeaders, i * PCIBYTES);
+		}
+		List<ByteBuffer> encodedPackages = ((Transport) this.lowerLayer).reqBatch(frames, params[1], params[2],
+				params[3]);
+		this.metrics.recordRequest(startTime);
+		return encodedPackages;
+	}
+
+	@Override
+	protected int getPCIBytes() {
+		return PCIBYTES;
+	}
+
+	private void addPCI(FrameBuffer frame, byte[] fragmentHeaders, int headerIndex) {
+		FrameEvent event = this.beginEvent(FrameEvent.REQUEST);
+		this.metrics.countSent(frame.getLength());
+		int offset = frame.push(PCIBYTES);
+		System.arraycopy(fragmentHeaders, headerIndex, frame.getBuffer(), offset, PCIBYTES);
+		this.describeEvent(event, frame, true);
+		event.finish(FrameEvent.SENT);
+	}
+
+	/**
+	 * creates the header of a fragment
+	 * 
+	 * @param transferId identifies the transfer, only the lower 16 bits are used
+	 * @param seqNo      sequence number of the fragment, the last fragment has the
+	 *                   sequence number 0
+	 * @param offset     index of the fragment within the transfer
+	 * @param totalSize  number of bytes of the whole transfer
+	 * @return <code>byte[]</code> holding the fragment header
+	 */
+	public static byte[] createFragmentHeader(int transferId, int seqNo, int offset, int totalSize) {
+		byte[] fragmentHeader = new byte[PCIBYTES];
+		writeFragmentHeader(fragmentHeader, 0, transferId, seqNo, offset, totalSize);
+		return fragmentHeader;
+	}
+
+	private static void writeFragmentHeader(byte[] buffer, int headerIndex, int transferId, int seqNo, int offset,
+			int totalSize) {
+		buffer[headerIndex] = (byte) (transferId >>> 8);
+		buffer[headerIndex + 1] = (byte) transferId;
+		writeInt(buffer, headerIndex + TRANSFERIDBYTES, seqNo);
+		writeInt(buffer, headerIndex + TRANSFERIDBYTES + SEQUENCEBYTES, offset);
+		writeInt(buffer, headerIndex + TRANSFERIDBYTES + SEQUENCEBYTES + OFFSETBYTES, totalSize);
+	}
+
+	/**
+	 * determines the number of bytes of the header of a fragment
+	 * 
+	 * @return number of bytes of the PCI of this layer
+	 */
+	public static int getHeaderBytes() {
+		return PCIBYTES;
+	}
+
+	/**
+	 * reads the transfer identifier of a fragment header
+	 * 
+	 * @param buffer      holds the fragment header
+	 * @param headerIndex index of the fragment header in the buffer
+	 * @return the transfer identifier
+	 */
+	public static int readTransferId(byte[] buffer, int headerIndex) {
+		return (buffer[headerIndex] & 0xff) << 8 | buffer[headerIndex + 1] & 0xff;
+	}
+
+	/**
+	 * reads the sequence number of a fragment header
+	 * 
+	 * @param buffer      holds the fragment header
+	 * @param headerIndex index of the fragment header in the buffer
+	 * @return the sequence number
+	 */
+	public static int readSequenceNumber(byte[] buffer, int headerIndex) {
+		return readInt(buffer, headerIndex + TRANSFERIDBYTES);
 	}
 
 	/**
-	 * TODO
+	 * provides services for the lower layer and reassembles the received
+	 * fragments.
+	 * 
+	 * @param serviceDataUnit contains the fragment header and the fragment
+	 * @return <code>byte[]</code> {@link #DATACOMPLETED} if the transfer is
+	 *         complete, else null
+	 * @throws UncheckedIOException if the fragment sink fails
 	 */
 	@Override
 	public byte[] ind(byte[] serviceDataUnit) {
-		byte[] storeData = null;
-		int dataSize = serviceDataUnit.length - SDUOFFSET;
-		if (recvData != null) {
-			int recvSize = recvData.length;
-			// if data is stored received data
-			storeData = new byte[dataSize + recvSize];
-			// add new received data to temporary variable
-			System.arraycopy(serviceDataUnit, SDUOFFSET, storeData, 0, dataSize);
-			// store earlier received data in temporary variable
-			System.arraycopy(recvData, 0, storeData, dataSize, recvSize);
-			if (serviceDataUnit[0]==0) {
-				for (int i = 0; i < storeData.length; i++) {
-					//Terminal.printLine(i + ":  " + storeData[i]);
+		return this.ind(FrameBuffer.wrap(serviceDataUnit));
+	}
+
+	/**
+	 * works like {@link #ind(byte[])}, but the received data is read from the
+	 * window of the frame buffer
+	 */
+	@Override
+	public byte[] ind(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		byte[] completed = this.indicate(frame);
+		this.metrics.recordIndication(startTime);
+		return completed;
+	}
+
+	/**
+	 * works like {@link #ind(FrameBuffer)}, but the fragments of a batch of
+	 * frames are placed one after another
+	 * 
+	 * @return <code>List</code> holding {@link #DATACOMPLETED} for the fragment
+	 *         which completed a transfer and null for all other frames
+	 */
+	@Override
+	public List<byte[]> indBatch(List<FrameBuffer> frames) {
+		long startTime = Metrics.startTime();
+		List<byte[]> completed = new ArrayList<byte[]>(frames.size());
+		for (FrameBuffer frame : frames) {
+			completed.add((frame != null) ? this.indicate(frame) : null);
+		}
+		this.metrics.recordIndication(startTime);
+		return completed;
+	}
+
+	private byte[] indicate(FrameBuffer frame) {
+		FrameEvent event = this.beginEvent(FrameEvent.INDICATION, frame, true);
+		this.metrics.countReceived(frame.getLength());
+		byte[] completed = this.indOperation(frame);
+		event.finish((completed != null) ? FrameEvent.COMPLETED : FrameEvent.DELIVERED);
+		return completed;
+	}
+
+	private byte[] indOperation(FrameBuffer frame) {
+		if (frame.getLength() < PCIBYTES) {
+			// a fragment without complete header can not be placed
+			return null;
+		}
+		byte[] serviceDataUnit = frame.getBuffer();
+		int headerIndex = frame.pull(PCIBYTES);
+		int transferId = readTransferId(serviceDataUnit, headerIndex);
+		int seqNo = readSequenceNumber(serviceDataUnit, headerIndex);
+		int offset = readInt(serviceDataUnit, headerIndex + TRANSFERIDBYTES + SEQUENCEBYTES);
+		int totalSize = readInt(serviceDataUnit, headerIndex + TRANSFERIDBYTES + SEQUENCEBYTES + OFFSETBYTES);
+		if (totalSize < 0 || totalSize > maxTransferSize) {
+			// invalid header or a transfer this receiver does not take
+			return null;
+		}
+		try {
+			ReassemblyBuffer completed;
+			if (seqNo == 0 && offset == 0 && frame.getLength() == totalSize) {
+				// a transfer of a single fragment is complete at once and needs no session
+				completed = this.openSession(this.sessionKey(frame, transferId), totalSize, 0);
+				completed.add(seqNo, offset, serviceDataUnit, frame.getOffset(), frame.getLength());
+				completed.complete();
+			} else {
+				completed = this.placeFragment(frame, transferId, seqNo, offset, totalSize);
+				if (completed == null) {
+					return null;
 				}
 			}
-		} else {
-			// if no data is received yet
-			storeData = new byte[dataSize];
-			// store new received data in temporary variable
-			System.arraycopy(serviceDataUnit, SDUOFFSET, storeData, 0, dataSize);
-		}
-		// store received data in a private variable
-		recvData = storeData;
-		// check return conditions
-		if (serviceDataUnit[0] == 0) {
-			//for (int i = 0; i < recvData.length; i++) {
-			//	Terminal.printLine(recvData[i]);
-			//}
+			byte[] data = completed.getData();
+			recvData = data;
+			this.notifyTransferListeners(transferId, totalSize, data);
 			return DATACOMPLETED;
-		} else {
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ReassemblyBuffer placeFragment(FrameBuffer frame, int transferId, int seqNo, int offset, int totalSize)
+			throws IOException {
+		long now = System.nanoTime();
+		this.evictIdleSessions(now);
+		SessionKey key = this.sessionKey(frame, transferId);
+		ReassemblyBuffer session;
+		// the first fragment of a transfer allocates its reassembly buffer or opens the
+		// fragment sink
+		while ((session = sessions.computeIfAbsent(key, k -> this.openSession(k, totalSize, now)))
+				.getTotalSize() != totalSize) {
+			// the transfer identifier was reused, the incomplete earlier transfer gets
+			// discarded
+			this.closeSession(key, session);
+		}
+		boolean completed;
+		try {
+			// only the session is locked while the fragment is placed, so fragments of
+			// other sessions are placed at the same time
+			synchronized (session) {
+				completed = session.add(seqNo, offset, frame.getBuffer(), frame.getOffset(), frame.getLength())
+						&& session.isComplete();
+				if (completed) {
+					session.complete();
+				}
+			}
+		} catch (IOException e) {
+			// the fragment sink failed, the transfer can not be completed
+			sessions.remove(key, session);
+			throw e;
+		}
+		session.touch(now);
+		if (!completed) {
 			return null;
 		}
+		sessions.remove(key, session);
+		return session;
+	}
+
+	private SessionKey sessionKey(FrameBuffer frame, int transferId) {
+		return new SessionKey(frame.getSourceLinkAddress(), frame.getSourceNetworkAddress(), frame.getSourcePort(),
+				transferId);
+	}
+
+	private ReassemblyBuffer openSession(SessionKey key, int totalSize, long now) {
+		try {
+			// every session writes to its own sink, so concurrent transfers do not meet
+			FragmentSinkFactory sinkFactory = fragmentSinkFactory;
+			ReassemblyBuffer session = (sinkFactory == null) ? new ReassemblyBuffer(key.getTransferId(), totalSize)
+					: new ReassemblyBuffer(key.getTransferId(), totalSize, sinkFactory.newSink(key));
+			// a new session is not idle, even if its first fragment is not placed yet
+			session.touch(now);
+			return session;
+		} catch (IOException e) {
+			// no session is added to the table
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void closeSession(SessionKey key, ReassemblyBuffer session) throws IOException {
+		try {
+			synchronized (session) {
+				session.abort();
+			}
+		} finally {
+			sessions.remove(key, session);
+		}
+	}
+
+	private void evictIdleSessions(long now) throws IOException {
+		long eviction = nextEviction.get();
+		// one look at all sessions per timeout is enough, only the thread which moves
+		// the time of the next look on looks at them
+		if (now - eviction < 0 || !nextEviction.compareAndSet(eviction, now + sessionTimeout)) {
+			return;
+		}
+		for (Map.Entry<SessionKey, ReassemblyBuffer> entry : sessions.entrySet()) {
+			if (entry.getValue().isIdle(now, sessionTimeout)) {
+				this.closeSession(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * sets the maximal size of a received transfer.<br>
+	 * The size of a transfer is read from the fragment header, so a larger
+	 * transfer is ignored before any memory is allocated for it.
+	 * 
+	 * @param maxTransferSize maximal number of bytes of a transfer,
+	 *                        {@value #DEFAULTMAXTRANSFERSIZE} bytes if no other
+	 *                        maximum is set
+	 */
+	public void setMaxTransferSize(int maxTransferSize) {
+		this.maxTransferSize = maxTransferSize;
 	}
 
 	/**
-	 * TODO
+	 * sets the time a session is kept without receiving a fragment.<br>
+	 * An incomplete transfer, e.g. because fragments were lost, is discarded
+	 * after this time, so its buffer does not stay in memory.
 	 * 
-	 * @return
+	 * @param milliseconds the session timeout, {@value #DEFAULTSESSIONTIMEOUT}
+	 *                     milliseconds if no other is set
+	 */
+	public void setSessionTimeout(long milliseconds) {
+		sessionTimeout = TimeUnit.MILLISECONDS.toNanos(milliseconds);
+		nextEviction.set(System.nanoTime());
+	}
+
+	/**
+	 * grants access to the number of transfers, which are currently received
+	 * 
+	 * @return number of incomplete sessions
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * grants access to the data of the last completed transfer
+	 * 
+	 * @return the reassembled data or null if no transfer is completed or the
+	 *         fragments are written to a fragment sink
 	 */
 	public byte[] getRecvData() {
 		return this.recvData;
 	}
 
 	/**
-	 * TODO
+	 * releases the data of the last completed transfer
 	 */
 	public void resetRecvData() {
 		recvData = null;
 	}
 
 	/**
-	 * TODO
+	 * sets the factory of the sinks which take the received fragments.<br>
+	 * If a factory is set, every transfer gets its own sink when its first
+	 * fragment arrives. The received fragments are written to the sink at their
+	 * offset instead of being reassembled in memory.
+	 * 
+	 * @param fragmentSinkFactory hands every transfer its sink, null to
+	 *                            reassemble the transfers in memory
+	 */
+	public void setFragmentSinkFactory(FragmentSinkFactory fragmentSinkFactory) {
+		this.fragmentSinkFactory = fragmentSinkFactory;
+	}
+
+	/**
+	 * sets the executor, which sends the asynchronous transfers and calls the
+	 * transfer listeners
+	 * 
+	 * @param executor runs the asynchronous work of this layer
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * grants access to the executor of this layer
+	 * 
+	 * @return the executor, which sends the asynchronous transfers and calls the
+	 *         transfer listeners
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * registers a listener, which is called on the executor of this layer
+	 * whenever a received transfer is complete.<br>
+	 * Listeners can be added and removed while frames are received. The calls for
+	 * different transfers may run concurrently and in any order, an exception
+	 * thrown by a listener does not affect the reception.
+	 * 
+	 * @param listener is told about every completed transfer
+	 */
+	public void addTransferListener(TransferListener listener) {
+		transferListeners.add(listener);
+	}
+
+	/**
+	 * removes a listener added by {@link #addTransferListener(TransferListener)}
+	 * 
+	 * @param listener the listener, which is not told about completed transfers
+	 *                 anymore
+	 */
+	public void removeTransferListener(TransferListener listener) {
+		transferListeners.remove(listener);
+	}
+
+	private void notifyTransferListeners(int transferId, int totalSize, byte[] data) {
+		for (TransferListener listener : transferListeners) {
+			executor.execute(() -> listener.completed(transferId, totalSize, data));
+		}
+	}
+
+	/**
+	 * switches the parallel sending mode on or off.<br>
+	 * If the parallel sending mode is switched on, the fragments of a transfer are
+	 * wrapped into frames and encoded concurrently on the common fork join pool.
+	 * 
+	 * @param parallelSending <code>true</code> to process fragments in parallel
+	 */
+	public void setParallelSending(boolean parallelSending) {
+		this.parallelSending = parallelSending;
+	}
+
+	/**
+	 * splits the data into fragments and requests the transmission of every
+	 * fragment.<br>
+	 * The fragments are sent from the end of the data to its beginning, every
+	 * fragment gets a header with a new transfer identifier, its sequence number,
+	 * its offset and the total size of the data.
 	 * 
-	 * @param data
-	 * @param transportDestPort
-	 * @param networkDestAddress
-	 * @param dataLinkDestAddress
-	 * @return
+	 * @param data                the data to be sent
+	 * @param transportDestPort   the receivers port
+	 * @param networkDestAddress  the receivers network address
+	 * @param dataLinkDestAddress the receivers data link address
+	 * @return <code>String</code> of all frames separated by line breaks
 	 */
 	public String sendData(byte[] data, byte[] transportDestPort, byte[] networkDestAddress,
 			byte[] dataLinkDestAddress) {
-		String fullLinecode = "";
-		String singleLinecode = "";
-		int dataSize = data.length;
-		if (dataSize > MAXFRAGMENTSIZE) {
-			int seqCount = (dataSize / MAXFRAGMENTSIZE);
-			int remainingBytes = dataSize % MAXFRAGMENTSIZE;
-			for (int i = seqCount; i >= 0; i--) {
-				if (i > 0) {
-					byte[] sdu = Arrays.copyOfRange(data, (i - 1) * MAXFRAGMENTSIZE + remainingBytes,
-							i * MAXFRAGMENTSIZE + remainingBytes);
-					byte[] seqNo = { (byte) i };
-					singleLinecode = this.req(seqNo, sdu, transportDestPort, networkDestAddress, dataLinkDestAddress);
-					fullLinecode = fullLinecode + singleLinecode + "\n";
-				} else {
-					byte[] sdu = Arrays.copyOfRange(data, 0, remainingBytes);
-					byte[] seqNo = { (byte) i };
-					singleLinecode = this.req(seqNo, sdu, transportDestPort, networkDestAddress, dataLinkDestAddress);
-					fullLinecode = fullLinecode + singleLinecode;
+		BiFunction<byte[], List<FrameBuffer>, List<String>> request = (fragmentHeaders, sdus) -> {
+			List<String> singleLinecodes = new ArrayList<String>(sdus.size());
+			for (int i = 0; i < sdus.size(); i++) {
+				singleLinecodes.add(this.req(sdus.get(i), Arrays.copyOfRange(fragmentHeaders, i * PCIBYTES,
+						(i + 1) * PCIBYTES), transportDestPort, networkDestAddress, dataLinkDestAddress));
+			}
+			return singleLinecodes;
+		};
+		try (Stream<String> singleLinecodes = this.fragmentData(ByteBuffer.wrap(data), this.nextTransferId(),
+				request)) {
+			return String.join("\n", singleLinecodes.collect(Collectors.toList()));
+		}
+	}
+
+	/**
+	 * fragments the data like {@link #sendData(byte[], byte[], byte[], byte[])},
+	 * but returns every frame as bit-packed binary line code instead of joining
+	 * the frames into one String
+	 * 
+	 * @param data                the data to be sent
+	 * @param transportDestPort   the receivers port
+	 * @param networkDestAddress  the receivers network address
+	 * @param dataLinkDestAddress the receivers data link address
+	 * @return <code>List</code> of bit-packed frames in sending order
+	 */
+	public List<ByteBuffer> sendDataBinary(byte[] data, byte[] transportDestPort, byte[] networkDestAddress,
+			byte[] dataLinkDestAddress) {
+		try (Stream<ByteBuffer> frames = this.streamDataBinary(ByteBuffer.wrap(data), transportDestPort,
+				networkDestAddress, dataLinkDestAddress)) {
+			return frames.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * sends the data on the executor of this layer without blocking the calling
+	 * thread.<br>
+	 * The frames are produced lazily like by
+	 * {@link #streamDataBinary(ByteBuffer, byte[], byte[], byte[])} and handed to
+	 * the medium one after another, so only the frames in progress are held in
+	 * memory. Every transfer gets its own transfer identifier, so many transfers
+	 * can be in flight at the same time, if the medium takes frames from several
+	 * threads. The returned future completes when all frames are handed to the
+	 * medium or with the exception, which stopped the fragmentation or the
+	 * medium.
+	 * 
+	 * @param data                the data to be sent, it must not be changed until
+	 *                            the future is complete
+	 * @param transportDestPort   the receivers port
+	 * @param networkDestAddress  the receivers network address
+	 * @param dataLinkDestAddress the receivers data link address
+	 * @param medium              takes the bit-packed frames in sending order,
+	 *                            e.g. {@link osi.layer.physical.RingMedium#publish(ByteBuffer)}
+	 * @return <code>CompletableFuture</code> of the result of the transfer
+	 */
+	public CompletableFuture<TransferResult> sendAsync(ByteBuffer data, byte[] transportDestPort,
+			byte[] networkDestAddress, byte[] dataLinkDestAddress, Consumer<? super ByteBuffer> medium) {
+		// the content is captured now, the fragmentation does not depend on the
+		// position of the buffer later on
+		ByteBuffer content = data.slice();
+		return CompletableFuture.supplyAsync(() -> {
+			int transferId = this.nextTransferId();
+			int frameCount = 0;
+			try (Stream<ByteBuffer> frames = this.streamDataBinary(content, transferId, transportDestPort,
+					networkDestAddress, dataLinkDestAddress)) {
+				Iterator<ByteBuffer> lineCodes = frames.iterator();
+				while (lineCodes.hasNext()) {
+					medium.accept(lineCodes.next());
+					frameCount++;
 				}
 			}
-		} else {
-			byte[] sdu = data;
-			byte[] seqNo = { 0 };
-			fullLinecode = this.req(seqNo, sdu, transportDestPort, networkDestAddress, dataLinkDestAddress);
+			return new TransferResult(transferId, content.remaining(), frameCount);
+		}, executor);
+	}
+
+	/**
+	 * creates a publisher of the frames of a transfer.<br>
+	 * The frames are produced on the executor of this layer as soon as all
+	 * subscribers requested more frames. The transfer starts with
+	 * {@link FramePublisher#connect()}.
+	 * 
+	 * @param data                the data to be sent, it must not be changed until
+	 *                            the transfer is complete
+	 * @param transportDestPort   the receivers port
+	 * @param networkDestAddress  the receivers network address
+	 * @param dataLinkDestAddress the receivers data link address
+	 * @return <code>FramePublisher</code> of the bit-packed frames in sending
+	 *         order
+	 */
+	public FramePublisher publishData(ByteBuffer data, byte[] transportDestPort, byte[] networkDestAddress,
+			byte[] dataLinkDestAddress) {
+		return new FramePublisher(this, data, transportDestPort, networkDestAddress, dataLinkDestAddress);
+	}
+
+	/**
+	 * fragments the data like {@link #sendDataBinary(byte[], byte[], byte[], byte[])},
+	 * but the frames are produced lazily while the returned stream is
+	 * consumed.<br>
+	 * Every fragment is copied directly from the byte buffer into its frame, so
+	 * the data can be a memory mapped file of any size up to 2 GB and only the
+	 * frames in progress are held in memory. The frames are requested in batches
+	 * of {@value #REQUESTBATCHSIZE} by {@link #reqBatch(List, byte[]...)}. In the
+	 * parallel sending mode batches of {@value #FRAGMENTBATCHSIZE} fragments are
+	 * processed in parallel, every fragment by its own request. The
+	 * content of the byte buffer between its position and its limit is sent, the
+	 * position is not changed. Closing the stream ends the flight recorder event
+	 * of the fragmentation.
+	 * 
+	 * @param data                the data to be sent
+	 * @param transportDestPort   the receivers port
+	 * @param networkDestAddress  the receivers network address
+	 * @param dataLinkDestAddress the receivers data link address
+	 * @return sequential <code>Stream</code> of bit-packed frames in sending
+	 *         order
+	 */
+	public Stream<ByteBuffer> streamDataBinary(ByteBuffer data, byte[] transportDestPort, byte[] networkDestAddress,
+			byte[] dataLinkDestAddress) {
+		return this.streamDataBinary(data.slice(), this.nextTransferId(), transportDestPort, networkDestAddress,
+				dataLinkDestAddress);
+	}
+
+	private Stream<ByteBuffer> streamDataBinary(ByteBuffer data, int transferId, byte[] transportDestPort,
+			byte[] networkDestAddress, byte[] dataLinkDestAddress) {
+		return this.fragmentData(data, transferId, (fragmentHeaders, sdus) -> this.reqBatch(sdus, fragmentHeaders,
+				transportDestPort, networkDestAddress, dataLinkDestAddress));
+	}
+
+	private int nextTransferId() {
+		return transferCounter.getAndIncrement() & 0xffff;
+	}
+
+	private <T> Stream<T> fragmentData(ByteBuffer data, int transferId,
+			BiFunction<byte[], List<FrameBuffer>, List<T>> request) {
+		int dataSize = data.remaining();
+		int headroom = this.getHeadroom();
+		// the fragments fill the frames up to the maximal transmission unit
+		int maxFragmentSize = this.getMaxDataSize();
+		// the fragment with sequence number 0 holds the remaining bytes at the
+		// beginning of the data, all other fragments are full
+		int seqCount = (dataSize > maxFragmentSize) ? dataSize / maxFragmentSize : 0;
+		int remainingBytes = (dataSize > maxFragmentSize) ? dataSize % maxFragmentSize : dataSize;
+		FragmentationEvent event = new FragmentationEvent(transferId, dataSize, maxFragmentSize, seqCount + 1,
+				parallelSending);
+		int requestBatchSize = parallelSending ? 1 : REQUESTBATCHSIZE;
+		// the fragments are sent from the highest sequence number down to 0, the
+		// argument is the position of the first fragment of a request in sending order
+		IntFunction<List<T>> createFrames = first -> {
+			int frameCount = Math.min(requestBatchSize, seqCount + 1 - first);
+			byte[] fragmentHeaders = new byte[frameCount * PCIBYTES];
+			List<FrameBuffer> sdus = new ArrayList<FrameBuffer>(frameCount);
+			try {
+				for (int j = 0; j < frameCount; j++) {
+					int i = seqCount - first - j;
+					int offset = (i > 0) ? (i - 1) * maxFragmentSize + remainingBytes : 0;
+					int fragmentSize = (i > 0) ? maxFragmentSize : remainingBytes;
+					// every fragment is copied exactly once into a pooled frame buffer, which
+					// reserves the headroom for the PCIs of all layers
+					FrameBuffer sdu = FrameBuffer.acquire(headroom, fragmentSize);
+					sdus.add(sdu);
+					sdu.append(data, offset, fragmentSize);
+					writeFragmentHeader(fragmentHeaders, j * PCIBYTES, transferId, i, offset, dataSize);
+				}
+				return request.apply(fragmentHeaders, sdus);
+			} finally {
+				for (FrameBuffer sdu : sdus) {
+					sdu.release();
+				}
+			}
+		};
+		if (!parallelSending) {
+			int requestCount = seqCount / requestBatchSize + 1;
+			return IntStream.range(0, requestCount).mapToObj(batch -> createFrames.apply(batch * requestBatchSize))
+					.flatMap(List::stream).onClose(event::commit);
 		}
-		return fullLinecode;
+		// the fragments are independent, every batch is processed in parallel and the
+		// collected batch keeps the sending order
+		int batchCount = seqCount / FRAGMENTBATCHSIZE + 1;
+		return IntStream.range(0, batchCount).boxed().flatMap(batch -> IntStream
+				.range(batch * FRAGMENTBATCHSIZE, Math.min((batch + 1) * FRAGMENTBATCHSIZE, seqCount + 1)).parallel()
+				.mapToObj(createFrames).flatMap(List::stream).collect(Collectors.toList()).stream())
+				.onClose(event::commit);
+	}
+
+	private static void writeInt(byte[] buffer, int index, int value) {
+		// store the value as big endian
+		buffer[index] = (byte) (value >>> 24);
+		buffer[index + 1] = (byte) (value >>> 16);
+		buffer[index + 2] = (byte) (value >>> 8);
+		buffer[index + 3] = (byte) value;
+	}
+
+	private static int readInt(byte[] buffer, int index) {
+		return (buffer[index] & 0xff) << 24 | (buffer[index + 1] & 0xff) << 16 | (buffer[index + 2] & 0xff) << 8
+				| buffer[index + 3] & 0xff;
 	}
 }
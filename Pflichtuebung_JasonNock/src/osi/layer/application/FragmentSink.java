@@ -0,0 +1,54 @@
+package osi.layer.application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * A fragment sink takes the received fragments of a transfer directly from the
+ * application layer.<br>
+ * Instead of reassembling a transfer in memory, the application layer hands
+ * every fragment to the sink together with its offset as soon as it arrives, so
+ * only the fragment in progress and the information which fragments are
+ * received have to be kept in memory. A sink takes the fragments of a single
+ * transfer, every transfer gets its own sink from a
+ * {@link FragmentSinkFactory}.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public interface FragmentSink {
+
+	/**
+	 * is called when the first fragment of a transfer arrives
+	 * 
+	 * @param totalSize number of bytes of the whole transfer
+	 * @throws IOException if the sink can not take the transfer
+	 */
+	void open(int totalSize) throws IOException;
+
+	/**
+	 * takes a fragment of the transfer, the fragments can arrive in any order
+	 * 
+	 * @param fragment holds the bytes of the fragment between its position and
+	 *                 its limit
+	 * @param offset   index of the fragment within the transfer
+	 * @throws IOException if the fragment can not be written
+	 */
+	void write(ByteBuffer fragment, long offset) throws IOException;
+
+	/**
+	 * is called when all fragments of the transfer are written
+	 * 
+	 * @throws IOException if the transfer can not be completed
+	 */
+	void complete() throws IOException;
+
+	/**
+	 * is called when an incomplete transfer gets discarded, because it got no
+	 * fragment for the session timeout or its transfer identifier was reused
+	 * 
+	 * @throws IOException if the transfer can not be discarded
+	 */
+	void abort() throws IOException;
+}
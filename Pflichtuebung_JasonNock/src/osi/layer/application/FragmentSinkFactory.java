@@ -0,0 +1,28 @@
+package osi.layer.application;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * A fragment sink factory hands every received transfer its own
+ * {@link FragmentSink}.<br>
+ * The application layer asks for a new sink when the first fragment of a
+ * transfer arrives, so the fragments of transfers which are received at the
+ * same time never meet in the same sink.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public interface FragmentSinkFactory {
+
+	/**
+	 * is called when the first fragment of a transfer arrives, before the sink
+	 * is opened
+	 *
+	 * @param session identifies the transfer by its sender and its transfer
+	 *                identifier
+	 * @return the sink which takes the fragments of this transfer only
+	 * @throws IOException if no sink can be created for the transfer
+	 */
+	FragmentSink newSink(SessionKey session) throws IOException;
+}
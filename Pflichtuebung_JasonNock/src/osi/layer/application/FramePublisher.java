@@ -0,0 +1,257 @@
+package osi.layer.application;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * The frame publisher hands the frames of a transfer to its subscribers as
+ * soon as all of them asked for more frames.<br>
+ * The frames are produced lazily like by
+ * {@link DataTransfer#streamDataBinary(ByteBuffer, byte[], byte[], byte[])},
+ * which fragments and encodes them in batches. The next batch is only produced
+ * when every subscriber has signalled demand, so the sender runs ahead of the
+ * slowest receiver by at most one batch of frames and only the frames in
+ * progress are held in memory. The frames are handed to all subscribers one
+ * after another on the executor of the sender, so a subscriber never takes two
+ * frames at the same time. No thread waits for demand, the publisher goes on
+ * whenever a subscriber requests frames. The end of the transfer is found with
+ * demand as well, so the subscribers are completed once they request more
+ * frames than the transfer holds. <br>
+ * The transfer starts when {@link #connect()} is called, so all receivers can
+ * subscribe first. A subscriber joining later takes the frames from then on,
+ * like a receiver attached to a medium during a transfer. A subscriber which
+ * cancels its subscription, even while subscribing, or which requests no
+ * frames does not hold back the others. A subscriber which throws an
+ * exception while taking a frame is cancelled and gets the exception by
+ * {@link Flow.Subscriber#onError(Throwable)}, the others go on.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class FramePublisher implements Flow.Publisher<ByteBuffer> {
+
+	private final DataTransfer sender;
+	private final ByteBuffer data;
+	private final byte[] transportDestPort;
+	private final byte[] networkDestAddress;
+	private final byte[] dataLinkDestAddress;
+	private final Executor executor;
+	private final List<FrameSubscription> subscriptions = new CopyOnWriteArrayList<FrameSubscription>();
+	private final CompletableFuture<Void> completion = new CompletableFuture<Void>();
+	// counts the signals, only the thread which raised it from 0 emits frames
+	private final AtomicInteger pendingSignals = new AtomicInteger();
+	// only used while emitting
+	private Stream<ByteBuffer> frameStream;
+	private Iterator<ByteBuffer> frames;
+	private Throwable failure;
+	private volatile boolean connected;
+	private volatile boolean done;
+
+	/**
+	 * generates a publisher of the frames of a transfer
+	 *
+	 * @param sender              the application layer which fragments the data
+	 * @param data                the data to be sent between its position and
+	 *                            its limit, it must not be changed until the
+	 *                            transfer is complete
+	 * @param transportDestPort   the receivers port
+	 * @param networkDestAddress  the receivers network address
+	 * @param dataLinkDestAddress the receivers data link address
+	 */
+	public FramePublisher(DataTransfer sender, ByteBuffer data, byte[] transportDestPort, byte[] networkDestAddress,
+			byte[] dataLinkDestAddress) {
+		this.sender = sender;
+		this.data = data.slice();
+		this.transportDestPort = transportDestPort;
+		this.networkDestAddress = networkDestAddress;
+		this.dataLinkDestAddress = dataLinkDestAddress;
+		this.executor = sender.getExecutor();
+	}
+
+	/**
+	 * adds a subscriber, which takes the frames of the transfer.<br>
+	 * If the transfer is already complete, the subscriber is completed at once.
+	 *
+	 * @param subscriber takes the bit-packed frames
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+		FrameSubscription subscription = new FrameSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		subscriptions.add(subscription);
+		if (subscription.cancelled) {
+			// the subscriber cancelled or failed while subscribing, it takes no frames
+			subscriptions.remove(subscription);
+		} else if (done && subscriptions.remove(subscription)) {
+			// the transfer is complete, there are no frames left
+			subscription.complete();
+		}
+		this.signal();
+	}
+
+	/**
+	 * starts the transfer.<br>
+	 * The returned future completes when all frames were handed to the
+	 * subscribers. It completes exceptionally if the fragmentation failed or if a
+	 * subscriber threw an exception while taking a frame.
+	 *
+	 * @return <code>CompletableFuture</code> of the transfer
+	 */
+	public CompletableFuture<Void> connect() {
+		connected = true;
+		this.signal();
+		return completion;
+	}
+
+	private void signal() {
+		if (connected && pendingSignals.getAndIncrement() == 0) {
+			executor.execute(this::emit);
+		}
+	}
+
+	private void emit() {
+		int signals = 1;
+		do {
+			try {
+				this.emitFrames();
+			} catch (RuntimeException e) {
+				// the fragmentation failed, the transfer can not go on
+				this.finish(e);
+			}
+			signals = pendingSignals.addAndGet(-signals);
+		} while (signals != 0);
+	}
+
+	private void emitFrames() {
+		if (done) {
+			return;
+		}
+		if (frames == null) {
+			frameStream = sender.streamDataBinary(data, transportDestPort, networkDestAddress, dataLinkDestAddress);
+			frames = frameStream.iterator();
+		}
+		// the frames are only looked at with demand, because looking at them produces
+		// the next batch
+		while (this.hasDemand()) {
+			if (!frames.hasNext()) {
+				this.finish(null);
+				return;
+			}
+			ByteBuffer frame = frames.next();
+			for (FrameSubscription subscription : subscriptions) {
+				subscription.deliver(frame);
+			}
+		}
+	}
+
+	private boolean hasDemand() {
+		for (FrameSubscription subscription : subscriptions) {
+			// a cancelled subscription is removed soon and does not hold back the others
+			if (!subscription.cancelled && subscription.demand.get() == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void finish(Throwable error) {
+		done = true;
+		if (frameStream != null) {
+			frameStream.close();
+		}
+		for (FrameSubscription subscription : subscriptions) {
+			if (subscriptions.remove(subscription)) {
+				if (error == null) {
+					subscription.complete();
+				} else {
+					subscription.fail(error);
+				}
+			}
+		}
+		Throwable cause = (error != null) ? error : failure;
+		if (cause == null) {
+			completion.complete(null);
+		} else {
+			completion.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * the demand of a subscriber
+	 */
+	private class FrameSubscription implements Flow.Subscription {
+
+		private final Flow.Subscriber<? super ByteBuffer> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private volatile boolean cancelled;
+
+		private FrameSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (cancelled) {
+				return;
+			}
+			if (n <= 0) {
+				this.cancel();
+				subscriber.onError(new IllegalArgumentException("Number of requested frames is not positive!!!"));
+				return;
+			}
+			// the demand saturates at Long.MAX_VALUE
+			demand.accumulateAndGet(n, (current, added) -> (current + added < 0) ? Long.MAX_VALUE : current + added);
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			if (subscriptions.remove(this)) {
+				// the remaining subscribers may have demand
+				signal();
+			}
+		}
+
+		private void deliver(ByteBuffer frame) {
+			if (cancelled) {
+				return;
+			}
+			demand.decrementAndGet();
+			try {
+				// every subscriber reads the frame from the same position
+				subscriber.onNext(frame.duplicate());
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
+				cancelled = true;
+				subscriptions.remove(this);
+				subscriber.onError(e);
+			}
+		}
+
+		private void complete() {
+			if (!cancelled) {
+				cancelled = true;
+				subscriber.onComplete();
+			}
+		}
+
+		private void fail(Throwable error) {
+			if (!cancelled) {
+				cancelled = true;
+				subscriber.onError(error);
+			}
+		}
+	}
+}
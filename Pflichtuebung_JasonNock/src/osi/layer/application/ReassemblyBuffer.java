@@ -0,0 +1,233 @@
+package osi.layer.application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * This class reassembles the fragments of a single transfer.<br>
+ * The buffer is allocated once with the total size of the transfer. Every
+ * fragment is copied directly to its offset within the buffer, so fragments
+ * can arrive in any order. The received sequence numbers are tracked in a
+ * bitmap, which allows to ignore duplicated fragments.<br>
+ * The sender cuts a transfer into fragments of one size, only the fragment
+ * with the sequence number 0 holds the remaining bytes at offset 0. The
+ * fragment size is taken from the first fragment with another sequence number,
+ * whose offset fits the layout its length implies. From then on the number of
+ * fragments and the offset of every fragment are known and a fragment, which
+ * does not fit into this layout, is ignored. So
+ * fragments never overlap and the transfer is complete as soon as all expected
+ * fragments are received.<br>
+ * If a {@link FragmentSink} is given, no buffer is allocated and every fragment
+ * is written to the sink at its offset instead, so only the bitmap stays in
+ * memory.<br>
+ * The buffer is not thread-safe, the application layer locks it while a
+ * fragment is added. Once the transfer is completed or aborted, further
+ * fragments are ignored.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class ReassemblyBuffer {
+
+	private final int transferId;
+	private final int totalSize;
+	private final byte[] data;
+	private final FragmentSink sink;
+	private final BitSet receivedFragments = new BitSet();
+	private int receivedCount;
+	// size of all fragments but the one with sequence number 0, 0 while unknown
+	private int fragmentSize;
+	// number of fragments of the transfer, 0 while unknown
+	private int expectedFragments;
+	// length of the fragment with sequence number 0, while the layout is unknown
+	private int firstLength;
+	private boolean closed;
+	// time of the last fragment by System.nanoTime()
+	private volatile long lastActivity;
+
+	/**
+	 * generates an empty buffer for a transfer
+	 *
+	 * @param transferId identifies the transfer the fragments belong to
+	 * @param totalSize  number of bytes of the whole transfer
+	 */
+	ReassemblyBuffer(int transferId, int totalSize) {
+		this.transferId = transferId;
+		this.totalSize = totalSize;
+		this.data = new byte[totalSize];
+		this.sink = null;
+	}
+
+	/**
+	 * generates a reassembly for a transfer, which writes the fragments to the
+	 * given sink
+	 *
+	 * @param transferId identifies the transfer the fragments belong to
+	 * @param totalSize  number of bytes of the whole transfer
+	 * @param sink       takes the fragments of the transfer
+	 * @throws IOException if the sink can not be opened
+	 */
+	ReassemblyBuffer(int transferId, int totalSize, FragmentSink sink) throws IOException {
+		this.transferId = transferId;
+		this.totalSize = totalSize;
+		this.data = null;
+		this.sink = sink;
+		sink.open(totalSize);
+	}
+
+	/**
+	 * places a fragment at its offset within the buffer.<br>
+	 * A fragment gets ignored if its sequence number was already received, if it
+	 * does not fit into the layout of the transfer or if the transfer is completed
+	 * or aborted.
+	 *
+	 * @param seqNo  sequence number of the fragment
+	 * @param offset index of the fragment within the whole transfer
+	 * @param source array holding the fragment
+	 * @param start  index of the first byte of the fragment within the array
+	 * @param length number of bytes of the fragment
+	 * @return <code>true</code> if the fragment was added
+	 * @throws IOException if the fragment can not be written to the sink
+	 */
+	boolean add(int seqNo, int offset, byte[] source, int start, int length) throws IOException {
+		if (closed || seqNo < 0 || offset < 0 || length > totalSize - offset || receivedFragments.get(seqNo)
+				|| !this.fitsLayout(seqNo, offset, length)) {
+			return false;
+		}
+		if (sink != null) {
+			sink.write(ByteBuffer.wrap(source, start, length), offset);
+		} else {
+			System.arraycopy(source, start, data, offset, length);
+		}
+		receivedFragments.set(seqNo);
+		receivedCount++;
+		return true;
+	}
+
+	private boolean fitsLayout(int seqNo, int offset, int length) {
+		if (seqNo == 0) {
+			if (offset != 0) {
+				return false;
+			}
+			if (expectedFragments == 0) {
+				firstLength = length;
+				// a fragment holding the whole transfer is the only one
+				if (length == totalSize) {
+					expectedFragments = 1;
+				}
+				return true;
+			}
+			return length == this.firstFragmentSize();
+		}
+		if (expectedFragments == 0) {
+			// the first fragment after sequence number 0, which fits into the layout it
+			// implies, fixes the layout
+			if (length == 0 || length >= totalSize) {
+				return false;
+			}
+			int candidateFragments = totalSize / length + 1;
+			if (seqNo >= candidateFragments || offset != (seqNo - 1) * length + totalSize % length) {
+				return false;
+			}
+			fragmentSize = length;
+			expectedFragments = candidateFragments;
+			if (receivedFragments.get(0) && firstLength != this.firstFragmentSize()) {
+				// the fragment with sequence number 0 did not fit, it has to arrive again
+				receivedFragments.clear(0);
+				receivedCount--;
+			}
+		}
+		return fragmentSize > 0 && seqNo < expectedFragments && length == fragmentSize
+				&& offset == (seqNo - 1) * fragmentSize + this.firstFragmentSize();
+	}
+
+	private int firstFragmentSize() {
+		return (fragmentSize > 0) ? totalSize % fragmentSize : totalSize;
+	}
+
+	/**
+	 * checks if all fragments of the transfer are received
+	 *
+	 * @return <code>true</code> if the transfer is complete
+	 */
+	boolean isComplete() {
+		return expectedFragments > 0 && receivedCount == expectedFragments;
+	}
+
+	/**
+	 * finishes the complete transfer
+	 *
+	 * @throws IOException if the sink can not be completed
+	 */
+	void complete() throws IOException {
+		closed = true;
+		if (sink != null) {
+			sink.complete();
+		}
+	}
+
+	/**
+	 * discards the incomplete transfer, a transfer which is completed or aborted
+	 * already is left as it is
+	 *
+	 * @throws IOException if the sink can not be aborted
+	 */
+	void abort() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (sink != null) {
+			sink.abort();
+		}
+	}
+
+	/**
+	 * notes the time a fragment of the transfer arrived
+	 *
+	 * @param now the current time by System.nanoTime()
+	 */
+	void touch(long now) {
+		lastActivity = now;
+	}
+
+	/**
+	 * checks if no fragment arrived for the given time
+	 *
+	 * @param now     the current time by System.nanoTime()
+	 * @param timeout the time in nanoseconds
+	 * @return <code>true</code> if the transfer is idle
+	 */
+	boolean isIdle(long now, long timeout) {
+		return now - lastActivity > timeout;
+	}
+
+	/**
+	 * grants access to the identifier of the transfer
+	 *
+	 * @return identifier of the transfer
+	 */
+	int getTransferId() {
+		return transferId;
+	}
+
+	/**
+	 * grants access to the total size of the transfer
+	 *
+	 * @return number of bytes of the whole transfer
+	 */
+	int getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * grants access to the reassembled data
+	 *
+	 * @return the buffer holding the transfer or null if the fragments are
+	 *         written to a sink
+	 */
+	byte[] getData() {
+		return data;
+	}
+}
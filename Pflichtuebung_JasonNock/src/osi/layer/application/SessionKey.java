@@ -0,0 +1,98 @@
+package osi.layer.application;
+
+/**
+ * This class identifies a received transfer.<br>
+ * A transfer is told apart by the data link address, the network address and
+ * the port of its sender and by its transfer identifier, so the transfers of
+ * different senders and the transfers a sender sends one after another are
+ * reassembled independently. A {@link FragmentSinkFactory} gets the key of
+ * every new transfer.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public final class SessionKey {
+
+	private final long sourceLinkAddress;
+	private final int sourceNetworkAddress;
+	private final short sourcePort;
+	private final int transferId;
+
+	/**
+	 * generates the key of a transfer
+	 *
+	 * @param sourceLinkAddress    data link address of the sender
+	 * @param sourceNetworkAddress network address of the sender
+	 * @param sourcePort           port of the sender
+	 * @param transferId           identifies the transfer at the sender
+	 */
+	SessionKey(long sourceLinkAddress, int sourceNetworkAddress, short sourcePort, int transferId) {
+		this.sourceLinkAddress = sourceLinkAddress;
+		this.sourceNetworkAddress = sourceNetworkAddress;
+		this.sourcePort = sourcePort;
+		this.transferId = transferId;
+	}
+
+	/**
+	 * grants access to the data link address of the sender
+	 *
+	 * @return the data link address as held by the frame
+	 */
+	public long getSourceLinkAddress() {
+		return sourceLinkAddress;
+	}
+
+	/**
+	 * grants access to the network address of the sender
+	 *
+	 * @return the network address as held by the frame
+	 */
+	public int getSourceNetworkAddress() {
+		return sourceNetworkAddress;
+	}
+
+	/**
+	 * grants access to the port of the sender
+	 *
+	 * @return the port as held by the frame
+	 */
+	public short getSourcePort() {
+		return sourcePort;
+	}
+
+	/**
+	 * grants access to the identifier of the transfer at the sender
+	 *
+	 * @return the transfer identifier
+	 */
+	public int getTransferId() {
+		return transferId;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof SessionKey)) {
+			return false;
+		}
+		SessionKey key = (SessionKey) other;
+		return sourceLinkAddress == key.sourceLinkAddress && sourceNetworkAddress == key.sourceNetworkAddress
+				&& sourcePort == key.sourcePort && transferId == key.transferId;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = Long.hashCode(sourceLinkAddress);
+		hash = 31 * hash + sourceNetworkAddress;
+		hash = 31 * hash + sourcePort;
+		return 31 * hash + transferId;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%012x/%08x/%d/%d", sourceLinkAddress, sourceNetworkAddress, sourcePort & 0xffff,
+				transferId);
+	}
+}
@@ -0,0 +1,25 @@
+package osi.layer.application;
+
+/**
+ * <p>
+ * A transfer listener is told by the application layer of a receiver when a
+ * transfer is complete.<br>
+ * The listener is not called on the thread which receives the frames, but on
+ * the executor of the application layer, so receiving goes on with the next
+ * frame at once and a slow listener does not hold up the medium.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public interface TransferListener {
+
+	/**
+	 * is called when all fragments of a transfer are received
+	 *
+	 * @param transferId identifies the completed transfer
+	 * @param totalSize  number of bytes of the whole transfer
+	 * @param data       the reassembled data or null if the fragments were written
+	 *                   to a {@link FragmentSink}, which is completed already
+	 */
+	void completed(int transferId, int totalSize, byte[] data);
+}
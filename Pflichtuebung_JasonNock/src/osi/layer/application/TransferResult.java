@@ -0,0 +1,64 @@
+package osi.layer.application;
+
+/**
+ * <p>
+ * The transfer result describes a transfer, whose frames were all handed to
+ * the medium.<br>
+ * The transfer identifier is the one a {@link TransferListener} of the
+ * receiver is told about, so the sender can tell which of its transfers
+ * arrived.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public final class TransferResult {
+
+	private final int transferId;
+	private final int totalSize;
+	private final int frameCount;
+
+	/**
+	 * generates the result of a sent transfer
+	 *
+	 * @param transferId identifies the transfer, only the lower 16 bits are used
+	 * @param totalSize  number of bytes of the whole transfer
+	 * @param frameCount number of frames handed to the medium
+	 */
+	public TransferResult(int transferId, int totalSize, int frameCount) {
+		this.transferId = transferId;
+		this.totalSize = totalSize;
+		this.frameCount = frameCount;
+	}
+
+	/**
+	 * grants access to the identifier of the transfer
+	 *
+	 * @return identifier of the transfer
+	 */
+	public int getTransferId() {
+		return transferId;
+	}
+
+	/**
+	 * grants access to the size of the transfer
+	 *
+	 * @return number of bytes of the whole transfer
+	 */
+	public int getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * grants access to the number of sent frames
+	 *
+	 * @return number of frames handed to the medium
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	@Override
+	public String toString() {
+		return "transfer " + transferId + ": " + totalSize + " bytes in " + frameCount + " frames";
+	}
+}
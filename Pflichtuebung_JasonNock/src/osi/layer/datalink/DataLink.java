@@ -1,12 +1,19 @@
 package osi.layer.datalink;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import osi.exception.DataLinkException;
+import osi.layer.Address;
+import osi.layer.FrameBuffer;
 import osi.layer.ConnectionlessServicePrimitives;
 import osi.layer.Layer;
 import osi.layer.network.Network;
 import osi.layer.physical.PHY;
+import osi.metrics.FrameEvent;
+import osi.metrics.Metrics;
 
 /**
  * Third Layer of the given OSI model.<br>
@@ -16,16 +23,18 @@ import osi.layer.physical.PHY;
  * transmission. This layer is essential for a secure data transmission
  * 
  * @author Jason Nock
- * @version 2.7
+ * @version 2.8
  */
 public class DataLink extends Layer implements ConnectionlessServicePrimitives {
 
-	private byte[] sourceAddress;
+	private long sourceAddress;
+	private int maxDataSize;
 	
 	final static int ADDRESSBYTES = 6;
 	final static int DTBYTES = 2;
 	final static int PCIBYTES = 14;
 	final static int MAXDATASIZE = 1500;
+	final static int MAXJUMBODATASIZE = 9000;
 	final static int MINDATASIZE = 46;
 
 	/**
@@ -39,14 +48,114 @@ public class DataLink extends Layer implements ConnectionlessServicePrimitives {
 	 * @param physicalLayer is an access pointer to the lower layer
 	 */
 	public DataLink(byte[] sourceAddress, Layer physicalLayer) throws DataLinkException {
+		this(sourceAddress, physicalLayer, MAXDATASIZE);
+	}
+
+	/**
+	 * This method constructs an instance of the layer with the given maximal
+	 * transmission unit.<br>
+	 * It works like {@link #DataLink(byte[], Layer)}, but the service data unit of
+	 * a frame can hold up to mtu bytes instead of 1500 bytes. Jumbo frames with up
+	 * to 9000 bytes are supported. The limits of all layers above are derived from
+	 * the maximal transmission unit.
+	 * 
+	 * @param sourceAddress contains sender and receiver access information
+	 * @param physicalLayer is an access pointer to the lower layer
+	 * @param mtu           maximal number of bytes of the service data unit of a
+	 *                      frame
+	 */
+	public DataLink(byte[] sourceAddress, Layer physicalLayer, int mtu) throws DataLinkException {
+		this(toAddress(sourceAddress), physicalLayer, mtu);
+	}
+
+	/**
+	 * This method constructs an instance of the layer with an address given as
+	 * primitive value.<br>
+	 * It works like {@link #DataLink(byte[], Layer, int)}, but the 6 bytes of the
+	 * address are given in the lower 48 bits of a <code>long</code>.
+	 * 
+	 * @param sourceAddress contains sender and receiver access information
+	 * @param physicalLayer is an access pointer to the lower layer
+	 * @param mtu           maximal number of bytes of the service data unit of a
+	 *                      frame
+	 */
+	public DataLink(long sourceAddress, Layer physicalLayer, int mtu) throws DataLinkException {
 		super(physicalLayer);
-		if (sourceAddress.length == ADDRESSBYTES) {
+		if (Address.isMAC(sourceAddress)) {
 			this.sourceAddress = sourceAddress;
 		} else {
 			throw new DataLinkException("Wrong size for address!!!");
 		}
+		if (mtu >= MINDATASIZE && mtu <= MAXJUMBODATASIZE) {
+			this.maxDataSize = mtu;
+		} else {
+			throw new DataLinkException("Wrong size for MTU!!!");
+		}
 	}
 	
+	private static long toAddress(byte[] sourceAddress) throws DataLinkException {
+		if (sourceAddress.length == ADDRESSBYTES) {
+			return Address.readMAC(sourceAddress, 0);
+		} else {
+			throw new DataLinkException("Wrong size for address!!!");
+		}
+	}
+
+	/**
+	 * grants access to the source address of this layer
+	 * 
+	 * @return the source address in the lower 48 bits
+	 */
+	public long getSourceAddress() {
+		return sourceAddress;
+	}
+
+	/**
+	 * determines the number of bytes of the header of a frame
+	 * 
+	 * @return number of bytes of the PCI of this layer
+	 */
+	public static int getHeaderBytes() {
+		return PCIBYTES;
+	}
+
+	/**
+	 * determines the number of bytes of an address of this layer
+	 * 
+	 * @return number of bytes of the source or destination address
+	 */
+	public static int getAddressBytes() {
+		return ADDRESSBYTES;
+	}
+
+	/**
+	 * reads the destination address of a frame without copying it
+	 * 
+	 * @param frame holds a frame with the PCI of this layer in front
+	 * @return the destination address in the lower 48 bits or
+	 *         {@link Address#NOMAC} if the frame is too short
+	 */
+	public static long readDestinationAddress(FrameBuffer frame) {
+		if (frame.getLength() < PCIBYTES) {
+			return Address.NOMAC;
+		}
+		return Address.readMAC(frame.getBuffer(), frame.getOffset() + ADDRESSBYTES);
+	}
+
+	/**
+	 * checks if a frame is intended for this layer.<br>
+	 * The destination address is read as a single value out of the window of the
+	 * frame buffer and compared with the source address of this layer, so only the
+	 * PCI of this layer has to be present. The frame buffer is not changed.
+	 * 
+	 * @param frame holds at least the PCI of this layer
+	 * @return <code>true</code> if the destination address matches the source
+	 *         address of this layer
+	 */
+	public boolean isDestination(FrameBuffer frame) {
+		return readDestinationAddress(frame) == sourceAddress;
+	}
+
 	/**
 	 * requests services from its lower layer and hands it its processed data.<br>
 	 * This method ensures that the assigned lower layer is an instance of PHY, if
@@ -64,44 +173,149 @@ public class DataLink extends Layer implements ConnectionlessServicePrimitives {
 	 * @param dataType           contains static protocol information of the upper
 	 *                           layer with size of 2 bytes
 	 * @param serviceDataUnit    contains the upper layers datagram with a size of
-	 *                           46 - 1500 Bytes.
+	 *                           up to the MTU of 1500 Bytes or up to 9000 Bytes
+	 *                           for jumbo frames.
 	 * @return <code>String</code> of encoded data to upper layer.
 	 */
 	public String req(byte[]... params) throws DataLinkException {
-		byte[] destinationAddress = params[0];
-		byte[] dataType = params[1]; 
-		byte[] serviceDataUnit = params[2];
+		// copy the service data unit once into a frame buffer with room for this layers
+		// PCI and continue without further copies
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[2]);
+		try {
+			return this.req(frame, params[0], params[1]);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * requests services from its lower layer and hands it its processed data.<br>
+	 * It works like {@link #req(byte[]...)}, but the lower layer returns the line
+	 * code in its bit-packed binary form.
+	 * 
+	 * @param params the same parameters as for {@link #req(byte[]...)}
+	 * @return <code>ByteBuffer</code> of bit-packed encoded data to upper layer.
+	 */
+	@Override
+	public ByteBuffer reqBinary(byte[]... params) throws DataLinkException {
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[2]);
+		try {
+			return this.reqBinary(frame, params[0], params[1]);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * requests services from its lower layer and hands it the frame buffer.<br>
+	 * It works like {@link #req(byte[]...)}, but the filler and this layers
+	 * protocol control information are written into the given frame buffer in
+	 * place.
+	 * 
+	 * @param frame  holds the upper layers datagram with a size up to the MTU of
+	 *               this layer.
+	 * @param params the destination address and the data type
+	 * @return <code>String</code> of encoded data to upper layer.
+	 */
+	@Override
+	public String req(FrameBuffer frame, byte[]... params) throws DataLinkException {
+		long startTime = Metrics.startTime();
 		String encodedPackage = "";
-		int dataSize = serviceDataUnit.length;
 		if (this.lowerLayer instanceof PHY) {
-			if (dataSize <= MAXDATASIZE) {
-				if (destinationAddress.length == ADDRESSBYTES && dataType.length == DTBYTES) {
-					byte[] sdu = serviceDataUnit;
-					if (sdu.length < MINDATASIZE) {
-						// elongate the sdu if the size is insufficient
-						sdu = Arrays.copyOf(sdu, MINDATASIZE);
-					}
-					dataSize = sdu.length;
-					byte[] pdu = new byte[PCIBYTES + dataSize];
-					System.arraycopy(sourceAddress, 0, pdu, 0, ADDRESSBYTES);
-					System.arraycopy(destinationAddress, 0, pdu, ADDRESSBYTES, ADDRESSBYTES);
-					System.arraycopy(dataType, 0, pdu, 2 * ADDRESSBYTES, DTBYTES);
-					System.arraycopy(sdu, 0, pdu, PCIBYTES, dataSize);
-					// pass the processed data to the lower layer, which provides services for this
-					// layer and returns the data
-					encodedPackage = ((PHY) this.lowerLayer).transmit(pdu);
+			this.addPCI(frame, params);
+			// pass the processed data to the lower layer, which provides services for this
+			// layer and returns the data
+			encodedPackage = ((PHY) this.lowerLayer).transmit(frame);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * requests services from its lower layer and hands it the frame buffer.<br>
+	 * It works like {@link #req(FrameBuffer, byte[]...)}, but the lower layer
+	 * returns the line code in its bit-packed binary form.
+	 * 
+	 * @param frame  holds the upper layers datagram
+	 * @param params the destination address and the data type
+	 * @return <code>ByteBuffer</code> of bit-packed encoded data to upper layer.
+	 */
+	@Override
+	public ByteBuffer reqBinary(FrameBuffer frame, byte[]... params) throws DataLinkException {
+		long startTime = Metrics.startTime();
+		ByteBuffer encodedPackage = ByteBuffer.allocate(0);
+		if (this.lowerLayer instanceof PHY) {
+			this.addPCI(frame, params);
+			encodedPackage = ((PHY) this.lowerLayer).transmitBinary(frame);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * requests services from its lower layer for a batch of frames.<br>
+	 * It works like {@link #reqBinary(FrameBuffer, byte[]...)}, but the filler and
+	 * this layers PCI are written into every frame and the whole batch is handed
+	 * to the lower layer, which encodes it with the same codec.
+	 * 
+	 * @param frames hold the upper layers datagrams
+	 * @param params the destination address and the data type
+	 * @return <code>List</code> of bit-packed encoded data to upper layer.
+	 */
+	@Override
+	public List<ByteBuffer> reqBatch(List<FrameBuffer> frames, byte[]... params) throws DataLinkException {
+		long startTime = Metrics.startTime();
+		List<ByteBuffer> encodedPackages = Collections.emptyList();
+		if (this.lowerLayer instanceof PHY) {
+			for (FrameBuffer frame : frames) {
+				this.addPCI(frame, params);
+			}
+			encodedPackages = ((PHY) this.lowerLayer).transmitBatch(frames);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackages;
+	}
+
+	@Override
+	protected int getPCIBytes() {
+		return PCIBYTES;
+	}
+
+	/**
+	 * grants access to the maximal transmission unit of this layer
+	 * 
+	 * @return maximal number of bytes of the service data unit of a frame
+	 */
+	@Override
+	public int getMaxDataSize() {
+		return maxDataSize;
+	}
+
+	private void addPCI(FrameBuffer frame, byte[]... params) throws DataLinkException {
+		FrameEvent event = this.beginEvent(FrameEvent.REQUEST, frame, false);
+		byte[] destinationAddress = params[0];
+		byte[] dataType = params[1];
+		if (frame.getLength() <= maxDataSize) {
+			if (destinationAddress.length == ADDRESSBYTES && dataType.length == DTBYTES) {
+				this.metrics.countSent(frame.getLength());
+				// elongate the sdu if the size is insufficient
+				frame.padTo(MINDATASIZE);
+				int offset = frame.push(PCIBYTES);
+				byte[] pdu = frame.getBuffer();
+				Address.writeMAC(pdu, offset, sourceAddress);
+				System.arraycopy(destinationAddress, 0, pdu, offset + ADDRESSBYTES, ADDRESSBYTES);
+				System.arraycopy(dataType, 0, pdu, offset + 2 * ADDRESSBYTES, DTBYTES);
+				event.finish(FrameEvent.SENT, pdu, offset, offset + ADDRESSBYTES, ADDRESSBYTES);
+			} else {
+				if (destinationAddress.length != ADDRESSBYTES) {
+					throw new DataLinkException("Wrong size for address!!!");
 				} else {
-					if (destinationAddress.length != ADDRESSBYTES) {
-						throw new DataLinkException("Wrong size for address!!!");
-					} else {
-						throw new DataLinkException("Wrong size for transport protocol!!!");
-					}
+					throw new DataLinkException("Wrong size for transport protocol!!!");
 				}
-			} else {
-				throw new DataLinkException("Wrong size for service data unit!!!");
 			}
+		} else {
+			throw new DataLinkException("Wrong size for service data unit!!!");
 		}
-		return encodedPackage;
 	}
 
 	
@@ -122,32 +336,126 @@ public class DataLink extends Layer implements ConnectionlessServicePrimitives {
 	 */
 	@Override
 	public byte[] ind(byte[] serviceDataUnit) {
-		int dataSize = serviceDataUnit.length;
-		byte[] filledSDU = new byte[dataSize - PCIBYTES];
-		// copies the destination address
-		byte[] destinationAddress = Arrays.copyOfRange(serviceDataUnit, ADDRESSBYTES, 2 * ADDRESSBYTES);
-		int cutIndex = 0;
-		// compares if the source port matches the destination port
-		if (Arrays.equals(destinationAddress, sourceAddress)) {
-			// cut this layer PCI
-			filledSDU = Arrays.copyOfRange(serviceDataUnit, PCIBYTES, dataSize);
-			// determines SDU filler
-			for (int i = filledSDU.length; i > 0; i--) {
-				if (filledSDU[i - 1] != 0) {
-					cutIndex = i;
-					break;
-				}
-			}
-			// cuts the SDU filler
-			byte[] networkSDU = Arrays.copyOfRange(filledSDU, 0, cutIndex);
+		return this.ind(FrameBuffer.wrap(serviceDataUnit));
+	}
+
+	/**
+	 * provides services for the lower layer and passes the frame buffer to the
+	 * upper layer<br>
+	 * It works like {@link #ind(byte[])}, but the destination address is compared
+	 * within the window of the frame buffer and the PCI is pulled from its front.
+	 * The filler is only cut if there is no upper layer, because the upper layers
+	 * know the size of their data unit.
+	 * 
+	 * @param frame holds the users input data with the header from all layers
+	 * @return <code>byte[]</code> of users data input, if all circumstances are
+	 *         true
+	 */
+	@Override
+	public byte[] ind(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		byte[] receivedData = this.indOperation(frame);
+		this.metrics.recordIndication(startTime);
+		return receivedData;
+	}
+
+	private byte[] indOperation(FrameBuffer frame) {
+		// compares if the source address matches the destination address in place
+		if (this.cutPCI(frame)) {
 			if (this.upperLayer == null) {
-				return networkSDU;
+				return cutFiller(frame);
 			} else {
-				return ((Network) this.upperLayer).ind(networkSDU);
+				return ((Network) this.upperLayer).ind(frame);
 			}
 		} else {
 			// returning null means the package is not intended for this receiver
 			return null;
 		}
 	}
+
+	private static byte[] cutFiller(FrameBuffer frame) {
+		byte[] serviceDataUnit = frame.getBuffer();
+		// determines SDU filler
+		int cutIndex = 0;
+		for (int i = frame.getLength(); i > 0; i--) {
+			if (serviceDataUnit[frame.getOffset() + i - 1] != 0) {
+				cutIndex = i;
+				break;
+			}
+		}
+		// cuts the SDU filler
+		frame.trimTo(cutIndex);
+		return frame.toByteArray();
+	}
+
+	/**
+	 * provides services for the lower layer and passes a batch of frames to the
+	 * upper layer<br>
+	 * It works like {@link #ind(FrameBuffer)}, but the destination address of
+	 * every frame is compared and its PCI is cut before the frames intended for
+	 * this receiver are handed to the upper layer as one batch.
+	 * 
+	 * @param frames hold the decoded frames, null for frames dropped by the lower
+	 *               layer
+	 * @return <code>List</code> of users data input in the order of the frames,
+	 *         null for every frame not intended for this receiver
+	 */
+	@Override
+	public List<byte[]> indBatch(List<FrameBuffer> frames) {
+		long startTime = Metrics.startTime();
+		List<FrameBuffer> accepted = new ArrayList<FrameBuffer>(frames.size());
+		for (FrameBuffer frame : frames) {
+			accepted.add((frame != null && this.cutPCI(frame)) ? frame : null);
+		}
+		List<byte[]> receivedData;
+		if (this.upperLayer != null) {
+			receivedData = ((Network) this.upperLayer).indBatch(accepted);
+		} else {
+			receivedData = new ArrayList<byte[]>(accepted.size());
+			for (FrameBuffer frame : accepted) {
+				receivedData.add((frame != null) ? cutFiller(frame) : null);
+			}
+		}
+		this.metrics.recordIndication(startTime);
+		return receivedData;
+	}
+
+	/**
+	 * checks the destination addresses of a received frame and cuts the PCIs of
+	 * this layer and the layers above up to the transport layer, but does not hand
+	 * the frame to the application layer.<br>
+	 * This allows to process the headers of many frames concurrently, while the
+	 * application layer still receives the fragments one after another.
+	 * 
+	 * @param frame holds the decoded frame
+	 * @return <code>true</code> if the frame is intended for this receiver
+	 */
+	public boolean cutPCIs(FrameBuffer frame) {
+		if (this.cutPCI(frame)) {
+			if (this.upperLayer instanceof Network) {
+				return ((Network) this.upperLayer).cutPCIs(frame);
+			}
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private boolean cutPCI(FrameBuffer frame) {
+		FrameEvent event = this.beginEvent(FrameEvent.INDICATION, frame, true);
+		byte[] pdu = frame.getBuffer();
+		int offset = frame.getOffset();
+		this.metrics.countReceived(frame.getLength());
+		if (this.isDestination(frame)) {
+			// note the sender and cut this layer PCI
+			frame.setSourceLinkAddress(Address.readMAC(pdu, offset));
+			frame.pull(PCIBYTES);
+			event.finish(FrameEvent.DELIVERED, pdu, offset, offset + ADDRESSBYTES, ADDRESSBYTES);
+			return true;
+		} else {
+			this.metrics.countDropped();
+			event.finish(FrameEvent.FILTERED, pdu, offset, offset + ADDRESSBYTES, ADDRESSBYTES);
+			return false;
+		}
+	}
 }
@@ -1,12 +1,19 @@
 package osi.layer.network;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import osi.exception.NetworkException;
+import osi.layer.Address;
+import osi.layer.FrameBuffer;
 import osi.layer.ConnectionlessServicePrimitives;
 import osi.layer.Layer;
 import osi.layer.datalink.DataLink;
 import osi.layer.transport.Transport;
+import osi.metrics.FrameEvent;
+import osi.metrics.Metrics;
 
 /**
  * Second Layer of the given OSI model.<br>
@@ -16,17 +23,16 @@ import osi.layer.transport.Transport;
  * transmission. This layer is essential for communication between two users.
  * 
  * @author Jason Nock
- * @version 2.7
+ * @version 2.8
  */
 public class Network extends Layer implements ConnectionlessServicePrimitives {
 
-	private byte[] sourceAddress;
+	private int sourceAddress;
 
 	final static int ADDRESSBYTES = 4;
 	final static int TPBYTES = 1;
 	final static int PCIBYTES = 9;
 	final static byte[] DATATYPE = {8, 0};
-	final static int MAXDATASIZE = 1480;
 	final static int MINDATASIZE = 8;
 
 	/**
@@ -40,14 +46,40 @@ public class Network extends Layer implements ConnectionlessServicePrimitives {
 	 * @param dataLinkLayer is an access pointer to the lower layer
 	 */
 	public Network(byte[] sourceAddress, Layer dataLinkLayer) {
+		this(toAddress(sourceAddress), dataLinkLayer);
+	}
+
+	/**
+	 * This method constructs an instance of the layer with an address given as
+	 * primitive value.<br>
+	 * It works like {@link #Network(byte[], Layer)}, but the 4 bytes of the
+	 * address are given as <code>int</code>.
+	 * 
+	 * @param sourceAddress contains sender and receiver access information
+	 * @param dataLinkLayer is an access pointer to the lower layer
+	 */
+	public Network(int sourceAddress, Layer dataLinkLayer) {
 		super(dataLinkLayer);
+		this.sourceAddress = sourceAddress;
+	}
+
+	private static int toAddress(byte[] sourceAddress) throws NetworkException {
 		if (sourceAddress.length == ADDRESSBYTES) {
-			this.sourceAddress = sourceAddress;
+			return Address.readIPv4(sourceAddress, 0);
 		} else {
 			throw new NetworkException("Wrong size for address!!!");
 		}
 	}
 
+	/**
+	 * grants access to the source address of this layer
+	 * 
+	 * @return the source address
+	 */
+	public int getSourceAddress() {
+		return sourceAddress;
+	}
+
 	/**
 	 * requests services from its lower layer and hands it its processed data.<br>
 	 * This method ensures that the assigned lower layer is an instance of Data
@@ -64,46 +96,149 @@ public class Network extends Layer implements ConnectionlessServicePrimitives {
 	 * @param transportProtocol   contains static protocol information of the upper
 	 *                            layer with size of 1 bytes
 	 * @param serviceDataUnit     contains the upper layers datagram with a size of
-	 *                            8 - 1480 Bytes.
+	 *                            8 Bytes up to the MTU reduced by 9 Bytes.
 	 * @param dataLinkDestination contains the data link destination address with
 	 *                            size of 6 bytes. This data gets processed in a
 	 *                            lower layer
 	 * @return <code>String</code> of encoded data to upper layer.
 	 */
 	public String req(byte[]... params) throws NetworkException {
-		byte[] destinationAddress = params[0];
-		byte[] transportProtocol = params[1];
-		byte[] serviceDataUnit = params[2];
-		byte[] dataLinkDestination = params[3];
+		// copy the service data unit once into a frame buffer with room for all lower
+		// PCIs and continue without further copies
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[2]);
+		try {
+			return this.req(frame, params[0], params[1], params[3]);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * requests services from its lower layer and hands it its processed data.<br>
+	 * It works like {@link #req(byte[]...)}, but the lower layers return the line
+	 * code in its bit-packed binary form.
+	 * 
+	 * @param params the same parameters as for {@link #req(byte[]...)}
+	 * @return <code>ByteBuffer</code> of bit-packed encoded data to upper layer.
+	 */
+	@Override
+	public ByteBuffer reqBinary(byte[]... params) throws NetworkException {
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[2]);
+		try {
+			return this.reqBinary(frame, params[0], params[1], params[3]);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * requests services from its lower layer and hands it the frame buffer.<br>
+	 * It works like {@link #req(byte[]...)}, but this layers protocol control
+	 * information is written into the given frame buffer in place.
+	 * 
+	 * @param frame  holds the upper layers datagram with a size of 8 Bytes up to
+	 *               the MTU reduced by 9 Bytes.
+	 * @param params the destination address, the transport protocol and the data
+	 *               link destination address
+	 * @return <code>String</code> of encoded data to upper layer.
+	 */
+	@Override
+	public String req(FrameBuffer frame, byte[]... params) throws NetworkException {
+		long startTime = Metrics.startTime();
+		byte[] dataLinkDestination = params[2];
 		String encodedPackage = "";
-		int dataSize = serviceDataUnit.length;
-		byte[] pdu = new byte[PCIBYTES + dataSize];
 		if (this.lowerLayer instanceof DataLink) {
 			// set static value of data type
 			// for data frame reasons we need to invert the bytes
 			byte[] dataType = DATATYPE;
-			if (dataSize <= MAXDATASIZE && dataSize >= MINDATASIZE) {
-				if (destinationAddress.length == ADDRESSBYTES && transportProtocol.length == TPBYTES) {
-					// append the given data to the required data frame
-					System.arraycopy(sourceAddress, 0, pdu, 0, ADDRESSBYTES);
-					System.arraycopy(destinationAddress, 0, pdu, ADDRESSBYTES, ADDRESSBYTES);
-					System.arraycopy(transportProtocol, 0, pdu, 2 * ADDRESSBYTES, TPBYTES);
-					System.arraycopy(serviceDataUnit, 0, pdu, PCIBYTES, dataSize);
-					// pass the processed data to the lower layer, which provides services for this
-					// layer and returns the data
-					encodedPackage = ((DataLink) this.lowerLayer).req(dataLinkDestination, dataType, pdu);
+			this.addPCI(frame, this.getMaxDataSize(), params);
+			// pass the processed data to the lower layer, which provides services for this
+			// layer and returns the data
+			encodedPackage = ((DataLink) this.lowerLayer).req(frame, dataLinkDestination, dataType);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * requests services from its lower layer and hands it the frame buffer.<br>
+	 * It works like {@link #req(FrameBuffer, byte[]...)}, but the lower layers
+	 * return the line code in its bit-packed binary form.
+	 * 
+	 * @param frame  holds the upper layers datagram
+	 * @param params the destination address, the transport protocol and the data
+	 *               link destination address
+	 * @return <code>ByteBuffer</code> of bit-packed encoded data to upper layer.
+	 */
+	@Override
+	public ByteBuffer reqBinary(FrameBuffer frame, byte[]... params) throws NetworkException {
+		long startTime = Metrics.startTime();
+		byte[] dataLinkDestination = params[2];
+		ByteBuffer encodedPackage = ByteBuffer.allocate(0);
+		if (this.lowerLayer instanceof DataLink) {
+			this.addPCI(frame, this.getMaxDataSize(), params);
+			encodedPackage = ((DataLink) this.lowerLayer).reqBinary(frame, dataLinkDestination, DATATYPE);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * requests services from its lower layer for a batch of frames.<br>
+	 * It works like {@link #reqBinary(FrameBuffer, byte[]...)}, but the maximal
+	 * size of a service data unit is derived once, this layers PCI is written into
+	 * every frame and the whole batch is handed to the lower layer.
+	 * 
+	 * @param frames hold the upper layers datagrams
+	 * @param params the destination address, the transport protocol and the data
+	 *               link destination address
+	 * @return <code>List</code> of bit-packed encoded data to upper layer.
+	 */
+	@Override
+	public List<ByteBuffer> reqBatch(List<FrameBuffer> frames, byte[]... params) throws NetworkException {
+		long startTime = Metrics.startTime();
+		List<ByteBuffer> encodedPackages = Collections.emptyList();
+		if (this.lowerLayer instanceof DataLink) {
+			int maxDataSize = this.getMaxDataSize();
+			for (FrameBuffer frame : frames) {
+				this.addPCI(frame, maxDataSize, params);
+			}
+			encodedPackages = ((DataLink) this.lowerLayer).reqBatch(frames, params[2], DATATYPE);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackages;
+	}
+
+	@Override
+	protected int getPCIBytes() {
+		return PCIBYTES;
+	}
+
+	private void addPCI(FrameBuffer frame, int maxDataSize, byte[]... params) throws NetworkException {
+		FrameEvent event = this.beginEvent(FrameEvent.REQUEST, frame, false);
+		byte[] destinationAddress = params[0];
+		byte[] transportProtocol = params[1];
+		int dataSize = frame.getLength();
+		if (dataSize <= maxDataSize && dataSize >= MINDATASIZE) {
+			if (destinationAddress.length == ADDRESSBYTES && transportProtocol.length == TPBYTES) {
+				// write the given data into the required data frame in front of the sdu
+				int offset = frame.push(PCIBYTES);
+				byte[] pdu = frame.getBuffer();
+				Address.writeIPv4(pdu, offset, sourceAddress);
+				System.arraycopy(destinationAddress, 0, pdu, offset + ADDRESSBYTES, ADDRESSBYTES);
+				System.arraycopy(transportProtocol, 0, pdu, offset + 2 * ADDRESSBYTES, TPBYTES);
+				this.metrics.countSent(dataSize);
+				event.finish(FrameEvent.SENT, pdu, offset, offset + ADDRESSBYTES, ADDRESSBYTES);
+			} else {
+				if (destinationAddress.length != ADDRESSBYTES) {
+					throw new NetworkException("Wrong size for address!!!");
 				} else {
-					if (destinationAddress.length != ADDRESSBYTES) {
-						throw new NetworkException("Wrong size for address!!!");
-					} else {
-						throw new NetworkException("Wrong size for transport protocol!!!");
-					}
+					throw new NetworkException("Wrong size for transport protocol!!!");
 				}
-			} else {
-				throw new NetworkException("Wrong size for service data unit!!!");
 			}
+		} else {
+			throw new NetworkException("Wrong size for service data unit!!!");
 		}
-		return encodedPackage;
 	}
 
 	/**
@@ -121,22 +256,103 @@ public class Network extends Layer implements ConnectionlessServicePrimitives {
 	 */
 	@Override
 	public byte[] ind(byte[] serviceDataUnit) {
-		int dataSize = serviceDataUnit.length;
-		// copies the destination address
-		byte[] transportSDU = new byte[dataSize - PCIBYTES];
-		byte[] destinationAddress = Arrays.copyOfRange(serviceDataUnit, ADDRESSBYTES, 2 * ADDRESSBYTES);
-		// compares if the source port matches the destination port
-		if (Arrays.equals(destinationAddress, sourceAddress)) {
-			// cuts this layers PCI
-			transportSDU = Arrays.copyOfRange(serviceDataUnit, PCIBYTES, dataSize);
+		return this.ind(FrameBuffer.wrap(serviceDataUnit));
+	}
+
+	/**
+	 * provides services for the lower layer and passes the frame buffer to the
+	 * upper layer<br>
+	 * It works like {@link #ind(byte[])}, but the destination address is compared
+	 * within the window of the frame buffer and the PCI is pulled from its front.
+	 * 
+	 * @param frame holds the users input data with the header from all upper
+	 *              layers
+	 * @return <code>byte[]</code> of users data input, if all circumstances are
+	 *         true
+	 */
+	@Override
+	public byte[] ind(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		// returning null means the package is not intended for this receiver
+		byte[] receivedData = null;
+		if (this.cutPCI(frame)) {
 			if (this.upperLayer != null) {
-				return ((Transport) this.upperLayer).ind(transportSDU);
+				receivedData = ((Transport) this.upperLayer).ind(frame);
 			} else {
-				return transportSDU;
+				receivedData = frame.toByteArray();
+			}
+		}
+		this.metrics.recordIndication(startTime);
+		return receivedData;
+	}
+
+	/**
+	 * provides services for the lower layer and passes a batch of frames to the
+	 * upper layer<br>
+	 * It works like {@link #ind(FrameBuffer)}, but the PCI of every frame is
+	 * checked and cut before the frames intended for this receiver are handed to
+	 * the upper layer as one batch.
+	 * 
+	 * @param frames hold the users input data with the header from all upper
+	 *               layers, null for frames dropped by a lower layer
+	 * @return <code>List</code> of users data input in the order of the frames,
+	 *         null for every frame not intended for this receiver
+	 */
+	@Override
+	public List<byte[]> indBatch(List<FrameBuffer> frames) {
+		long startTime = Metrics.startTime();
+		List<FrameBuffer> accepted = new ArrayList<FrameBuffer>(frames.size());
+		for (FrameBuffer frame : frames) {
+			accepted.add((frame != null && this.cutPCI(frame)) ? frame : null);
+		}
+		List<byte[]> receivedData;
+		if (this.upperLayer != null) {
+			receivedData = ((Transport) this.upperLayer).indBatch(accepted);
+		} else {
+			receivedData = FrameBuffer.toByteArrays(accepted);
+		}
+		this.metrics.recordIndication(startTime);
+		return receivedData;
+	}
+
+	/**
+	 * checks the destination addresses of a received frame and cuts the PCIs of
+	 * this layer and the transport layer, but does not hand the frame to the
+	 * application layer.<br>
+	 * This allows to process the headers of many frames concurrently, while the
+	 * application layer still receives the fragments one after another.
+	 * 
+	 * @param frame holds the sdu of the data link layer
+	 * @return <code>true</code> if the frame is intended for this receiver
+	 */
+	public boolean cutPCIs(FrameBuffer frame) {
+		if (this.cutPCI(frame)) {
+			if (this.upperLayer instanceof Transport) {
+				return ((Transport) this.upperLayer).cutPCIs(frame);
 			}
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private boolean cutPCI(FrameBuffer frame) {
+		FrameEvent event = this.beginEvent(FrameEvent.INDICATION, frame, true);
+		byte[] serviceDataUnit = frame.getBuffer();
+		int offset = frame.getOffset();
+		this.metrics.countReceived(frame.getLength());
+		// compares if the source address matches the destination address in place
+		if (frame.getLength() >= PCIBYTES
+				&& Address.readIPv4(serviceDataUnit, offset + ADDRESSBYTES) == sourceAddress) {
+			// notes the sender and cuts this layers PCI
+			frame.setSourceNetworkAddress(Address.readIPv4(serviceDataUnit, offset));
+			frame.pull(PCIBYTES);
+			event.finish(FrameEvent.DELIVERED, serviceDataUnit, offset, offset + ADDRESSBYTES, ADDRESSBYTES);
+			return true;
 		} else {
-			// returning null means the package is not intended for this receiver
-			return null;
+			this.metrics.countDropped();
+			event.finish(FrameEvent.FILTERED, serviceDataUnit, offset, offset + ADDRESSBYTES, ADDRESSBYTES);
+			return false;
 		}
 	}
 
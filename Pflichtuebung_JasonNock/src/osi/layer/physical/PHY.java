@@ -1,8 +1,21 @@
 package osi.layer.physical;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import osi.exception.DecodeException;
+import osi.layer.FrameBuffer;
 import osi.layer.Layer;
+import osi.layer.application.DataTransfer;
 import osi.layer.datalink.DataLink;
+import osi.linecode.BinaryCodec;
 import osi.linecode.Codec;
+import osi.metrics.FrameEvent;
+import osi.metrics.Metrics;
+import osi.metrics.ReceiverMetrics;
 
 /**
  * <p>
@@ -10,15 +23,34 @@ import osi.linecode.Codec;
  * This layer can provide or request services from its lower and upper layers.
  * This is used to send and receive data. Each instance of this layer can store
  * unique codec to translate data in different ways. This layer is essential for
- * transmitting and receiving data.
+ * transmitting and receiving data. <br>
+ * With lazy decoding only the header of a received frame is decoded first. The
+ * payload is decoded only if the destination address of the header matches the
+ * data link layer above, so frames for other stations cost little. <br>
+ * With a {@link osi.linecode.PassthroughCodec} this layer works in loopback
+ * mode and hands the raw bytes of a frame straight to the data link layer. <br>
+ * A receiver can subscribe to a publisher of bit-packed frames, e.g. a
+ * {@link osi.layer.application.FramePublisher}. It requests
+ * {@value #SUBSCRIBERWINDOW} frames in advance and asks for more whenever it
+ * received half of them, so the publisher never gets ahead of it.
  * 
  * @author Jason Nock
- * @version 2.7
+ * @version 2.8
  */
-public class PHY extends Layer {
+public class PHY extends Layer implements Flow.Subscriber<ByteBuffer> {
+
+	/**
+	 * number of frames a subscribed receiver requests in advance
+	 */
+	public final static int SUBSCRIBERWINDOW = 16;
 
 	private Codec codec;
 	private byte[] decodedPackage;
+	private boolean lazyDecoding;
+	private final ReceiverMetrics receiverMetrics = new ReceiverMetrics();
+	private Flow.Subscription subscription;
+	private int framesSinceRequest;
+	private volatile RuntimeException receiveFailure;
 
 	/**
 	 * Sets a codec for the layers instance.<br>
@@ -40,7 +72,75 @@ public class PHY extends Layer {
 	 * @return <code>String</code> as 4B5B code of encoded text
 	 */
 	public String transmit(byte[] data) {
-		return codec.encode(data);
+		return this.transmit(FrameBuffer.wrap(data));
+	}
+
+	/**
+	 * transmits the data unit of a frame buffer to encoder.
+	 * 
+	 * @param frame holds the data unit to be converted into 4B5B code
+	 * @return <code>String</code> as 4B5B code of encoded text
+	 */
+	public String transmit(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		FrameEvent event = this.beginEvent(FrameEvent.TRANSMIT, frame, true);
+		this.metrics.countSent(frame.getLength());
+		String encodedPackage = codec.encode(frame.getBuffer(), frame.getOffset(), frame.getLength());
+		this.metrics.recordRequest(startTime);
+		this.finishEvent(event, FrameEvent.SENT, frame.getBuffer(), frame.getOffset());
+		return encodedPackage;
+	}
+
+	/**
+	 * transmits data to the binary encoder.<br>
+	 * The codec of this layer has to support a binary line code.
+	 * 
+	 * @param data text input to be converted into 4B5B code
+	 * @return <code>ByteBuffer</code> as bit-packed 4B5B code of encoded text
+	 */
+	public ByteBuffer transmitBinary(byte[] data) {
+		return this.transmitBinary(FrameBuffer.wrap(data));
+	}
+
+	/**
+	 * transmits the data unit of a frame buffer to the binary encoder.<br>
+	 * The codec of this layer has to support a binary line code.
+	 * 
+	 * @param frame holds the data unit to be converted into 4B5B code
+	 * @return <code>ByteBuffer</code> as bit-packed 4B5B code of encoded text
+	 */
+	public ByteBuffer transmitBinary(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		FrameEvent event = this.beginEvent(FrameEvent.TRANSMIT, frame, true);
+		this.metrics.countSent(frame.getLength());
+		ByteBuffer encodedPackage = getBinaryCodec().encodeBinary(frame.getBuffer(), frame.getOffset(),
+				frame.getLength());
+		this.metrics.recordRequest(startTime);
+		this.finishEvent(event, FrameEvent.SENT, frame.getBuffer(), frame.getOffset());
+		return encodedPackage;
+	}
+
+	/**
+	 * transmits the data units of a batch of frame buffers to the binary
+	 * encoder.<br>
+	 * It works like {@link #transmitBinary(FrameBuffer)}, but the binary codec is
+	 * looked up once for the whole batch.
+	 * 
+	 * @param frames hold the data units to be converted into 4B5B code
+	 * @return <code>List</code> of bit-packed 4B5B code in the order of the frames
+	 */
+	public List<ByteBuffer> transmitBatch(List<FrameBuffer> frames) {
+		long startTime = Metrics.startTime();
+		BinaryCodec binaryCodec = getBinaryCodec();
+		List<ByteBuffer> encodedPackages = new ArrayList<ByteBuffer>(frames.size());
+		for (FrameBuffer frame : frames) {
+			FrameEvent event = this.beginEvent(FrameEvent.TRANSMIT, frame, true);
+			this.metrics.countSent(frame.getLength());
+			encodedPackages.add(binaryCodec.encodeBinary(frame.getBuffer(), frame.getOffset(), frame.getLength()));
+			this.finishEvent(event, FrameEvent.SENT, frame.getBuffer(), frame.getOffset());
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackages;
 	}
 
 	/**
@@ -53,12 +153,371 @@ public class PHY extends Layer {
 	 * @param data contains transmitted 4B5B code input to be converted into text
 	 */
 	public void receive(String data) {
+		long startTime = Metrics.startTime();
+		FrameEvent event = this.beginEvent(FrameEvent.RECEIVE);
+		if (this.upperLayer != null) {
+			DataLink dataLinkLayer = (DataLink) this.upperLayer;
+			try {
+				FrameBuffer header = lazyDecoding ? this.decodeHeader(data) : null;
+				if (header != null && !dataLinkLayer.isDestination(header)) {
+					// the frame is not intended for this receiver, the payload is not decoded
+					this.metrics.countDropped();
+					this.finishEvent(event, FrameEvent.FILTERED, header.getBuffer(), header.getOffset());
+					decodedPackage = null;
+				} else {
+					decodedPackage = this.indicate(FrameBuffer.wrap(codec.decode(data)), event);
+				}
+			} catch (DecodeException e) {
+				this.metrics.countDecodeError();
+				event.finish(FrameEvent.DECODEERROR);
+				throw e;
+			}
+		} else {
+			// invalid receiver instance
+			decodedPackage = null;
+		}
+		this.metrics.recordIndication(startTime);
+	}
+
+	/**
+	 * receives bit-packed data of the binary decoder and stores it into a local
+	 * variable.<br>
+	 * it works like {@link #receive(String)}, but the transmitted data is a
+	 * bit-packed binary line code. The position of the buffer is not changed, so
+	 * the same buffer can be received by several instances.
+	 * 
+	 * @param data contains transmitted bit-packed 4B5B code input to be converted
+	 *             into text
+	 */
+	public void receive(ByteBuffer data) {
+		long startTime = Metrics.startTime();
+		FrameEvent event = this.beginEvent(FrameEvent.RECEIVE);
 		if (this.upperLayer != null) {
-			decodedPackage = ((DataLink) this.upperLayer).ind(codec.decode(data));
+			DataLink dataLinkLayer = (DataLink) this.upperLayer;
+			BinaryCodec binaryCodec = getBinaryCodec();
+			try {
+				FrameBuffer header = lazyDecoding ? this.decodeHeader(data) : null;
+				if (header != null && !dataLinkLayer.isDestination(header)) {
+					// the frame is not intended for this receiver, the payload is not decoded
+					this.metrics.countDropped();
+					this.finishEvent(event, FrameEvent.FILTERED, header.getBuffer(), header.getOffset());
+					decodedPackage = null;
+				} else {
+					FrameBuffer frame = decodeFrame(binaryCodec, data);
+					try {
+						decodedPackage = this.indicate(frame, event);
+					} finally {
+						frame.release();
+					}
+				}
+			} catch (DecodeException e) {
+				this.metrics.countDecodeError();
+				event.finish(FrameEvent.DECODEERROR);
+				throw e;
+			}
 		} else {
 			// invalid receiver instance
 			decodedPackage = null;
 		}
+		this.metrics.recordIndication(startTime);
+	}
+
+	/**
+	 * receives a batch of bit-packed frames and hands the decoded frames to the
+	 * data link layer as one batch.<br>
+	 * It works like {@link #receive(ByteBuffer)} for every frame, but the results
+	 * are returned instead of being stored. The decoded frames are taken from the
+	 * frame pool and released after the batch was processed.
+	 * 
+	 * @param lineCodes contain transmitted bit-packed 4B5B code
+	 * @return <code>List</code> of the received data in the order of the frames,
+	 *         null for every frame not intended for this receiver
+	 */
+	public List<byte[]> receiveBatch(List<ByteBuffer> lineCodes) {
+		long startTime = Metrics.startTime();
+		int frameCount = lineCodes.size();
+		List<byte[]> receivedData;
+		if (this.upperLayer != null) {
+			BinaryCodec binaryCodec = getBinaryCodec();
+			List<FrameBuffer> frames = new ArrayList<FrameBuffer>(frameCount);
+			FrameEvent[] events = new FrameEvent[frameCount];
+			// the data link layer moves the windows, the addresses stay at their index
+			int[] offsets = new int[frameCount];
+			try {
+				for (int i = 0; i < frameCount; i++) {
+					events[i] = this.beginEvent(FrameEvent.RECEIVE);
+					FrameBuffer frame = this.decodeForBatch(binaryCodec, lineCodes.get(i), events[i]);
+					frames.add(frame);
+					if (frame != null) {
+						offsets[i] = frame.getOffset();
+					}
+				}
+				receivedData = ((DataLink) this.upperLayer).indBatch(frames);
+				for (int i = 0; i < frameCount; i++) {
+					FrameBuffer frame = frames.get(i);
+					if (frame != null) {
+						this.finishEvent(events[i], FrameEvent.DELIVERED, frame.getBuffer(), offsets[i]);
+					}
+				}
+			} finally {
+				for (FrameBuffer frame : frames) {
+					if (frame != null) {
+						frame.release();
+					}
+				}
+			}
+		} else {
+			// invalid receiver instance
+			receivedData = new ArrayList<byte[]>(Collections.nCopies(frameCount, (byte[]) null));
+		}
+		this.metrics.recordIndication(startTime);
+		return receivedData;
+	}
+
+	private FrameBuffer decodeForBatch(BinaryCodec binaryCodec, ByteBuffer lineCode, FrameEvent event) {
+		try {
+			FrameBuffer header = lazyDecoding ? this.decodeHeader(lineCode) : null;
+			if (header != null && !((DataLink) this.upperLayer).isDestination(header)) {
+				// the frame is not intended for this receiver, the payload is not decoded
+				this.metrics.countDropped();
+				this.finishEvent(event, FrameEvent.FILTERED, header.getBuffer(), header.getOffset());
+				return null;
+			}
+			FrameBuffer frame = decodeFrame(binaryCodec, lineCode);
+			this.metrics.countReceived(frame.getLength());
+			receiverMetrics.countReceived(frame.getLength());
+			this.describeEvent(event, frame, true);
+			return frame;
+		} catch (DecodeException e) {
+			this.metrics.countDecodeError();
+			event.finish(FrameEvent.DECODEERROR);
+			throw e;
+		}
+	}
+
+	/**
+	 * receives an already decoded frame and stores the result into a local
+	 * variable.<br>
+	 * it works like {@link #receive(String)}, but the frame is not decoded again.
+	 * This is used by the {@link SharedMedium}, which decodes every frame only
+	 * once for all receivers.
+	 * 
+	 * @param frame contains the decoded frame
+	 */
+	public void receive(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		if (this.upperLayer != null) {
+			decodedPackage = this.indicate(frame, this.beginEvent(FrameEvent.RECEIVE));
+		} else {
+			// invalid receiver instance
+			decodedPackage = null;
+		}
+		this.metrics.recordIndication(startTime);
+	}
+
+	/**
+	 * hands a frame, whose PCIs were already cut by
+	 * {@link DataLink#cutPCIs(FrameBuffer)}, to the application layer and stores
+	 * the result into a local variable.<br>
+	 * This is used by the {@link ReceivePipeline}, which decodes and checks the
+	 * frames concurrently and delivers them one after another.
+	 * 
+	 * @param frame contains the sdu of the transport layer
+	 */
+	public void deliver(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		// the PCIs below the application layer are already cut, so only the size of
+		// the frame is known
+		FrameEvent event = this.beginEvent(FrameEvent.RECEIVE);
+		event.setFrameSize(frame.getLength());
+		this.metrics.countReceived(frame.getLength());
+		receiverMetrics.countReceived(frame.getLength());
+		Layer applicationLayer = this;
+		while (applicationLayer.getUpperLayer() != null) {
+			applicationLayer = applicationLayer.getUpperLayer();
+		}
+		if (applicationLayer instanceof DataTransfer) {
+			decodedPackage = ((DataTransfer) applicationLayer).ind(frame);
+		} else {
+			// there is no application layer, the frame already holds the received data
+			decodedPackage = frame.toByteArray();
+		}
+		this.metrics.recordIndication(startTime);
+		event.finish(FrameEvent.DELIVERED);
+	}
+
+	/**
+	 * starts to take the frames of a publisher.<br>
+	 * A receiver takes the frames of one publisher at a time, a second
+	 * subscription is cancelled at once.
+	 * 
+	 * @param subscription the subscription to request the frames from
+	 */
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		framesSinceRequest = 0;
+		receiveFailure = null;
+		subscription.request(SUBSCRIBERWINDOW);
+	}
+
+	/**
+	 * receives a published frame like {@link #receive(ByteBuffer)} and requests
+	 * more frames once half of the requested frames are received.<br>
+	 * No exception is thrown to the publisher. A frame which can not be decoded
+	 * is dropped and the next frames are requested anyway. If the upper layers
+	 * fail, e.g. because a file can not be written, the exception is kept as
+	 * {@link #getReceiveFailure()} and the subscription is cancelled.
+	 * 
+	 * @param lineCode contains transmitted bit-packed 4B5B code
+	 */
+	@Override
+	public void onNext(ByteBuffer lineCode) {
+		if (subscription == null) {
+			// the subscription was cancelled, frames still on the way are dropped
+			return;
+		}
+		try {
+			this.receive(lineCode);
+		} catch (DecodeException e) {
+			// the frame is lost like on a noisy medium, the decode error is counted
+			decodedPackage = null;
+		} catch (RuntimeException e) {
+			// this receiver can not go on, only its own subscription ends
+			receiveFailure = e;
+			decodedPackage = null;
+			Flow.Subscription cancelled = subscription;
+			subscription = null;
+			cancelled.cancel();
+			return;
+		}
+		if (++framesSinceRequest == SUBSCRIBERWINDOW / 2) {
+			framesSinceRequest = 0;
+			subscription.request(SUBSCRIBERWINDOW / 2);
+		}
+	}
+
+	/**
+	 * ends the subscription after the publisher failed
+	 * 
+	 * @param throwable the failure of the publisher or of this receiver
+	 */
+	@Override
+	public void onError(Throwable throwable) {
+		subscription = null;
+	}
+
+	/**
+	 * ends the subscription after all frames were received
+	 */
+	@Override
+	public void onComplete() {
+		subscription = null;
+	}
+
+	/**
+	 * switches the lazy decoding on or off.<br>
+	 * If lazy decoding is switched on, only the header of a received frame is
+	 * decoded until its destination address is known to match.
+	 * 
+	 * @param lazyDecoding <code>true</code> to decode the header first
+	 */
+	public void setLazyDecoding(boolean lazyDecoding) {
+		this.lazyDecoding = lazyDecoding;
+	}
+
+	/**
+	 * grants access to the data link layer above this layer
+	 * 
+	 * @return the upper layer or null if there is no data link layer above
+	 */
+	public DataLink getDataLinkLayer() {
+		if (this.upperLayer instanceof DataLink) {
+			return (DataLink) this.upperLayer;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * grants access to the exception which ended the last subscription of this
+	 * layer
+	 * 
+	 * @return the failure of the upper layers or null if all published frames
+	 *         were received
+	 */
+	public RuntimeException getReceiveFailure() {
+		return receiveFailure;
+	}
+
+	/**
+	 * grants access to the metrics of the receiver this layer belongs to
+	 * 
+	 * @return the frames and bytes received by this layer
+	 */
+	public ReceiverMetrics getReceiverMetrics() {
+		return receiverMetrics;
+	}
+
+	private byte[] indicate(FrameBuffer frame, FrameEvent event) {
+		// count the decoded frame for all receivers and for this receiver
+		this.metrics.countReceived(frame.getLength());
+		receiverMetrics.countReceived(frame.getLength());
+		this.describeEvent(event, frame, true);
+		// the data link layer moves the window, the addresses stay at their index
+		byte[] pdu = frame.getBuffer();
+		int offset = frame.getOffset();
+		byte[] receivedData = ((DataLink) this.upperLayer).ind(frame);
+		this.finishEvent(event, FrameEvent.DELIVERED, pdu, offset);
+		return receivedData;
+	}
+
+	private void finishEvent(FrameEvent event, String outcome, byte[] pdu, int offset) {
+		// the addresses are read from the PCI of the data link layer
+		int addressBytes = DataLink.getAddressBytes();
+		event.finish(outcome, pdu, offset, offset + addressBytes, addressBytes);
+	}
+
+	private FrameBuffer decodeHeader(String data) {
+		return FrameBuffer.wrap(codec.decodeHeader(data, DataLink.getHeaderBytes()));
+	}
+
+	private FrameBuffer decodeHeader(ByteBuffer data) {
+		return FrameBuffer.wrap(getBinaryCodec().decodeBinaryHeader(data, DataLink.getHeaderBytes()));
+	}
+
+	/**
+	 * decodes a bit-packed frame into a frame buffer taken from the frame pool
+	 * 
+	 * @param binaryCodec the codec the frame is encoded with
+	 * @param lineCode    the encoded frame
+	 * @return <code>FrameBuffer</code> holding the decoded frame, which has to be
+	 *         released
+	 * @throws DecodeException if the frame can not be decoded
+	 */
+	static FrameBuffer decodeFrame(BinaryCodec binaryCodec, ByteBuffer lineCode) {
+		int maxLength = binaryCodec.getMaxDecodedLength(lineCode);
+		FrameBuffer frame = FrameBuffer.acquire(0, maxLength);
+		try {
+			int offset = frame.extend(maxLength);
+			frame.trimTo(binaryCodec.decodeBinary(lineCode, frame.getBuffer(), offset));
+			return frame;
+		} catch (RuntimeException e) {
+			frame.release();
+			throw e;
+		}
+	}
+
+	private BinaryCodec getBinaryCodec() {
+		if (codec instanceof BinaryCodec) {
+			return (BinaryCodec) codec;
+		} else {
+			throw new UnsupportedOperationException("Codec does not support binary line code!!!");
+		}
 	}
 
 	/**
@@ -0,0 +1,170 @@
+package osi.layer.physical;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import osi.layer.FrameBuffer;
+
+/**
+ * <p>
+ * The receive pipeline takes the frames of a shared medium in two stages.<br>
+ * In the first stage the frames are decoded and the PCIs of the data link,
+ * network and transport layers of the matching receivers are checked and cut.
+ * This is done for many frames concurrently by the threads of an executor. In
+ * the second stage the fragments are handed to the application layers of the
+ * receivers on the calling thread, exactly in the order the frames were put on
+ * the medium. Only a limited number of frames is in progress at the same time,
+ * so large transfers do not pile up decoded frames. The decoded frames are
+ * taken from the frame pool and go back to it once they are delivered. If
+ * receiving stops early, the frames in progress go back to the pool as soon
+ * as their decoding is finished.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class ReceivePipeline {
+
+	final static int FRAMESPERTHREAD = 4;
+
+	private SharedMedium medium;
+	private ExecutorService executor;
+	private int window;
+
+	/**
+	 * generates a pipeline which receives the frames of the given medium
+	 *
+	 * @param medium   the medium the receivers are attached to
+	 * @param executor runs the decoding of the frames
+	 */
+	public ReceivePipeline(SharedMedium medium, ExecutorService executor) {
+		this.medium = medium;
+		this.executor = executor;
+		this.window = Runtime.getRuntime().availableProcessors() * FRAMESPERTHREAD;
+	}
+
+	/**
+	 * puts the bit-packed frames on the medium and hands them to the attached
+	 * receivers.
+	 *
+	 * @param lineCodes the encoded frames in sending order, they are taken one
+	 *                  after another while the frames are in progress
+	 * @return <code>List</code> of the receivers which completed a transfer, in
+	 *         the order of completion
+	 */
+	public List<PHY> receive(Iterable<ByteBuffer> lineCodes) {
+		List<PHY> completedReceivers = new ArrayList<PHY>();
+		ArrayDeque<CompletableFuture<PreparedFrame>> pending = new ArrayDeque<CompletableFuture<PreparedFrame>>();
+		Iterator<ByteBuffer> frames = lineCodes.iterator();
+		try {
+			while (frames.hasNext() || !pending.isEmpty()) {
+				// keep a limited number of frames in progress
+				while (frames.hasNext() && pending.size() < window) {
+					ByteBuffer lineCode = frames.next();
+					pending.add(CompletableFuture.supplyAsync(() -> this.prepare(lineCode), executor));
+				}
+				// the oldest frame is delivered first, so the order is kept
+				PreparedFrame prepared = this.await(pending.poll());
+				try {
+					for (Delivery delivery : prepared.deliveries) {
+						delivery.receiver.deliver(delivery.frame);
+						if (delivery.receiver.getDecodedPackage() != null) {
+							completedReceivers.add(delivery.receiver);
+						}
+					}
+				} finally {
+					prepared.release();
+				}
+			}
+		} finally {
+			for (CompletableFuture<PreparedFrame> future : pending) {
+				this.discard(future);
+			}
+		}
+		return completedReceivers;
+	}
+
+	private PreparedFrame prepare(ByteBuffer lineCode) {
+		List<PHY> receivers = medium.lookUp(lineCode);
+		if (receivers.isEmpty()) {
+			// the frame is not intended for any attached receiver
+			return new PreparedFrame(null, List.of());
+		}
+		FrameBuffer decodedFrame = medium.decode(lineCode);
+		List<Delivery> deliveries = new ArrayList<Delivery>(receivers.size());
+		for (PHY receiver : receivers) {
+			// every receiver gets its own window, because the layers move the window
+			FrameBuffer frame = decodedFrame.duplicate();
+			if (receiver.getDataLinkLayer().cutPCIs(frame)) {
+				deliveries.add(new Delivery(receiver, frame));
+			}
+		}
+		return new PreparedFrame(decodedFrame, deliveries);
+	}
+
+	private void discard(CompletableFuture<PreparedFrame> future) {
+		// a running decoding can not be stopped, so the frame goes back to the pool
+		// once it is decoded, a frame which could not be decoded has nothing to release
+		future.whenComplete((prepared, failure) -> {
+			if (prepared != null) {
+				prepared.release();
+			}
+		});
+	}
+
+	private PreparedFrame await(CompletableFuture<PreparedFrame> future) {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			// rethrow the exception of the decoding, e.g. a DecodeException
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Receiving was interrupted!!!", e);
+		}
+	}
+
+	/**
+	 * a decoded frame and its deliveries to the matching receivers
+	 */
+	private static class PreparedFrame {
+
+		private final FrameBuffer decodedFrame;
+		private final List<Delivery> deliveries;
+
+		private PreparedFrame(FrameBuffer decodedFrame, List<Delivery> deliveries) {
+			this.decodedFrame = decodedFrame;
+			this.deliveries = deliveries;
+		}
+
+		private void release() {
+			if (decodedFrame != null) {
+				decodedFrame.release();
+			}
+		}
+	}
+
+	/**
+	 * a frame whose PCIs are cut and the receiver it gets delivered to
+	 */
+	private static class Delivery {
+
+		private final PHY receiver;
+		private final FrameBuffer frame;
+
+		private Delivery(PHY receiver, FrameBuffer frame) {
+			this.receiver = receiver;
+			this.frame = frame;
+		}
+	}
+}
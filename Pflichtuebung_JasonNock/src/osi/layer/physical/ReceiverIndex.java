@@ -0,0 +1,104 @@
+package osi.layer.physical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import osi.layer.Address;
+
+/**
+ * <p>
+ * Index of the receivers attached to a medium by their data link address.<br>
+ * The addresses are kept as primitive keys in an open addressed hash table, so
+ * looking up the destination address of a frame neither boxes the address nor
+ * wraps it into an object. The table is at most half full, so a lookup mostly
+ * takes a single probe. Receivers are only added while the medium is set up,
+ * afterwards lookups can run concurrently.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class ReceiverIndex {
+
+	private final static int INITIALCAPACITY = 16;
+	// spreads the bits of the address over the index of the table
+	private final static long MIXER = 0x9e3779b97f4a7c15L;
+
+	private long[] addresses;
+	private List<List<PHY>> receivers;
+	private int size;
+
+	/**
+	 * generates an empty index
+	 */
+	ReceiverIndex() {
+		this.allocate(INITIALCAPACITY);
+	}
+
+	/**
+	 * adds a receiver under the given address
+	 *
+	 * @param address  data link address of the receiver
+	 * @param receiver physical layer of the receiver
+	 */
+	void add(long address, PHY receiver) {
+		int slot = this.find(address);
+		if (addresses[slot] == Address.NOMAC) {
+			if (2 * (size + 1) > addresses.length) {
+				this.grow();
+				slot = this.find(address);
+			}
+			addresses[slot] = address;
+			receivers.set(slot, new ArrayList<PHY>());
+			size++;
+		}
+		receivers.get(slot).add(receiver);
+	}
+
+	/**
+	 * looks up the receivers with the given address
+	 *
+	 * @param address data link address of the receivers
+	 * @return <code>List</code> of the receivers, empty if there is none
+	 */
+	List<PHY> get(long address) {
+		if (address == Address.NOMAC) {
+			return Collections.emptyList();
+		}
+		int slot = this.find(address);
+		if (addresses[slot] == Address.NOMAC) {
+			return Collections.emptyList();
+		}
+		return receivers.get(slot);
+	}
+
+	private int find(long address) {
+		int mask = addresses.length - 1;
+		int slot = (int) ((address * MIXER) >>> 32) & mask;
+		// linear probing up to the address or a free slot
+		while (addresses[slot] != Address.NOMAC && addresses[slot] != address) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldAddresses = addresses;
+		List<List<PHY>> oldReceivers = receivers;
+		this.allocate(2 * oldAddresses.length);
+		for (int i = 0; i < oldAddresses.length; i++) {
+			if (oldAddresses[i] != Address.NOMAC) {
+				int slot = this.find(oldAddresses[i]);
+				addresses[slot] = oldAddresses[i];
+				receivers.set(slot, oldReceivers.get(i));
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		addresses = new long[capacity];
+		Arrays.fill(addresses, Address.NOMAC);
+		receivers = new ArrayList<List<PHY>>(Collections.nCopies(capacity, (List<PHY>) null));
+	}
+}
@@ -0,0 +1,294 @@
+package osi.layer.physical;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * The ring medium connects a sender with several receivers in the same process
+ * through a ring buffer.<br>
+ * The ring holds a fixed number of slots, which are allocated once. The sender
+ * publishes every bit-packed frame into the next slot and moves the cursor of
+ * the ring. Every attached receiver runs on its own thread and follows the
+ * cursor with its own sequence, so the receivers take the frames concurrently
+ * with the sender and with each other. The sender never overtakes the slowest
+ * receiver by more than the size of the ring. The cursor and the sequences are
+ * only written by their owner and read by the others, so neither the sender
+ * nor the receivers take a lock. A thread waiting for a slot or a frame first
+ * spins, then yields and at last parks for a short time.<br>
+ * Like the {@link SharedMedium} the receivers decode only the header of a
+ * frame, which is not intended for them. A frame is published by reference, so
+ * the medium copies nothing and allocates nothing per frame. Once all receivers
+ * took the frames, draining the medium clears their slots, so the ring does
+ * not hold on to frames between the transfers. Frames must be published and
+ * drained by one thread at a time.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class RingMedium implements AutoCloseable {
+
+	/**
+	 * number of slots of a ring, if no other is chosen
+	 */
+	public final static int DEFAULTSLOTS = 1024;
+
+	// number of rounds a waiting thread spins and yields before it parks
+	private final static int SPINS = 100;
+	private final static int YIELDS = 100;
+	private final static long PARKNANOS = 50_000;
+
+	private final ByteBuffer[] slots;
+	private final int mask;
+	// sequence of the last published frame
+	private final Sequence cursor = new Sequence(-1);
+	// replaced as a whole when a receiver is attached, so it is read without a lock
+	private volatile Consumer[] consumers = new Consumer[0];
+	// only used by the publishing thread
+	private long nextSequence = -1;
+	private long cachedGatingSequence = -1;
+	// sequence of the last frame whose slot is cleared
+	private long clearedSequence = -1;
+
+	/**
+	 * generates a ring medium with {@value #DEFAULTSLOTS} slots
+	 */
+	public RingMedium() {
+		this(DEFAULTSLOTS);
+	}
+
+	/**
+	 * generates a ring medium with the given number of slots
+	 *
+	 * @param slotCount number of frames the sender can be ahead of the slowest
+	 *                  receiver, has to be a power of two
+	 */
+	public RingMedium(int slotCount) {
+		if (slotCount < 1 || Integer.bitCount(slotCount) != 1) {
+			throw new IllegalArgumentException("Number of slots is not a power of two!!!");
+		}
+		this.slots = new ByteBuffer[slotCount];
+		this.mask = slotCount - 1;
+	}
+
+	/**
+	 * attaches a receiver to the medium and starts its thread.<br>
+	 * The receiver takes the frames published after it was attached. Receivers
+	 * should be attached between the transfers.
+	 *
+	 * @param receiver physical layer of the receiver
+	 */
+	public void attach(PHY receiver) {
+		Consumer consumer = new Consumer(receiver, cursor.get(), consumers.length);
+		Consumer[] attached = Arrays.copyOf(consumers, consumers.length + 1);
+		attached[consumers.length] = consumer;
+		consumers = attached;
+		consumer.thread.start();
+	}
+
+	/**
+	 * puts a bit-packed frame into the next slot of the ring.<br>
+	 * If the slot is still needed by a receiver, the sender waits until the
+	 * receiver took the frame. The position of the buffer must not be changed
+	 * until all receivers took the frame.
+	 *
+	 * @param lineCode the encoded frame
+	 */
+	public void publish(ByteBuffer lineCode) {
+		long sequence = nextSequence + 1;
+		long wrapPoint = sequence - slots.length;
+		if (wrapPoint > cachedGatingSequence) {
+			// the slot may still be in use, wait for the slowest receiver
+			long gatingSequence;
+			int idleRounds = 0;
+			while (wrapPoint > (gatingSequence = this.minimumSequence(nextSequence))) {
+				idleRounds = backOff(idleRounds);
+			}
+			cachedGatingSequence = gatingSequence;
+		}
+		slots[(int) sequence & mask] = lineCode;
+		nextSequence = sequence;
+		// the receivers see the slot as soon as they see the cursor
+		cursor.setRelease(sequence);
+	}
+
+	/**
+	 * waits until all receivers took all published frames and clears their
+	 * slots.<br>
+	 * An exception a receiver threw while taking a frame, e.g. because its file
+	 * could not be written or the frame could not be decoded, is rethrown here.
+	 * The receiver goes on with the next frame, so it never blocks the sender.
+	 *
+	 * @throws RuntimeException the first exception a receiver threw since the last
+	 *                          call
+	 */
+	public void drain() {
+		long published = cursor.get();
+		int idleRounds = 0;
+		while (this.minimumSequence(published) < published) {
+			idleRounds = backOff(idleRounds);
+		}
+		this.clearSlots(published);
+		for (Consumer consumer : consumers) {
+			RuntimeException failure = consumer.failure;
+			if (failure != null) {
+				consumer.failure = null;
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * stops the threads of all receivers after they took all published frames
+	 * and clears all slots
+	 */
+	@Override
+	public void close() {
+		for (Consumer consumer : consumers) {
+			consumer.running = false;
+			LockSupport.unpark(consumer.thread);
+		}
+		for (Consumer consumer : consumers) {
+			try {
+				consumer.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		consumers = new Consumer[0];
+		this.clearSlots(cursor.get());
+	}
+
+	private void clearSlots(long takenSequence) {
+		// every receiver passed the taken sequence, so no one reads these slots again
+		long first = Math.max(clearedSequence + 1, takenSequence - slots.length + 1);
+		for (long sequence = first; sequence <= takenSequence; sequence++) {
+			slots[(int) sequence & mask] = null;
+		}
+		clearedSequence = takenSequence;
+	}
+
+	private long minimumSequence(long minimum) {
+		for (Consumer consumer : consumers) {
+			minimum = Math.min(minimum, consumer.sequence.get());
+		}
+		return minimum;
+	}
+
+	private static int backOff(int idleRounds) {
+		if (idleRounds < SPINS) {
+			Thread.onSpinWait();
+		} else if (idleRounds < SPINS + YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARKNANOS);
+		}
+		return idleRounds + 1;
+	}
+
+	/**
+	 * a receiver following the cursor of the ring on its own thread
+	 */
+	private class Consumer implements Runnable {
+
+		private final PHY receiver;
+		// sequence of the last frame the receiver took
+		private final Sequence sequence;
+		private final Thread thread;
+		private volatile boolean running = true;
+		private volatile RuntimeException failure;
+
+		private Consumer(PHY receiver, long startSequence, int index) {
+			this.receiver = receiver;
+			this.sequence = new Sequence(startSequence);
+			this.thread = new Thread(this, "RingMedium receiver " + index);
+			this.thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			long next = sequence.get() + 1;
+			int idleRounds = 0;
+			while (true) {
+				long available = cursor.getAcquire();
+				if (available >= next) {
+					// take all frames published so far before the sequence is moved
+					for (; next <= available; next++) {
+						this.take(slots[(int) next & mask]);
+					}
+					sequence.setRelease(available);
+					idleRounds = 0;
+				} else if (running) {
+					idleRounds = backOff(idleRounds);
+				} else if (cursor.getAcquire() < next) {
+					// the frames published before closing are taken
+					return;
+				}
+			}
+		}
+
+		private void take(ByteBuffer lineCode) {
+			try {
+				receiver.receive(lineCode);
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * fills the cache line in front of the value of a sequence
+	 */
+	private static class LeftPadding {
+		long p1, p2, p3, p4, p5, p6, p7;
+	}
+
+	/**
+	 * the value of a sequence
+	 */
+	private static class Value extends LeftPadding {
+		volatile long value;
+	}
+
+	/**
+	 * a sequence number, which is written by one thread and read by others.<br>
+	 * The value is padded on both sides, so writing it does not invalidate the
+	 * cache lines of other sequences.
+	 */
+	private static final class Sequence extends Value {
+
+		private final static VarHandle VALUE;
+
+		static {
+			try {
+				VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		long p9, p10, p11, p12, p13, p14, p15;
+
+		private Sequence(long value) {
+			this.value = value;
+		}
+
+		private long get() {
+			return value;
+		}
+
+		private long getAcquire() {
+			return (long) VALUE.getAcquire(this);
+		}
+
+		private void setRelease(long value) {
+			VALUE.setRelease(this, value);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package osi.layer.physical;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import osi.exception.DecodeException;
+import osi.layer.FrameBuffer;
+import osi.layer.datalink.DataLink;
+import osi.linecode.BinaryCodec;
+import osi.linecode.Codec;
+import osi.metrics.LayerMetrics;
+
+/**
+ * <p>
+ * The shared medium connects the physical layers of several receivers.<br>
+ * Every frame put on the medium is decoded only once. The destination address
+ * of the decoded frame is looked up in an index of the data link addresses of
+ * all attached receivers and the decoded frame is handed only to the matching
+ * receivers. Receivers with other addresses are not involved at all, so the
+ * cost of a frame does not grow with the number of receivers. The header of a
+ * frame is decoded first, the payload is only decoded if there is a matching
+ * receiver.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class SharedMedium {
+
+	private Codec codec;
+	// stores the attached receivers by the address of their data link layer
+	private ReceiverIndex receiverIndex = new ReceiverIndex();
+	// the frames are decoded on behalf of the physical layers, so are their errors
+	private final LayerMetrics physicalMetrics = LayerMetrics.forLayer(PHY.class.getSimpleName());
+
+	/**
+	 * generates a medium which decodes the frames with the given codec
+	 *
+	 * @param codec determines in which code the frames on the medium are encoded
+	 */
+	public SharedMedium(Codec codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * attaches a receiver to the medium.<br>
+	 * The receiver gets indexed by the source address of the data link layer
+	 * above its physical layer.
+	 *
+	 * @param receiver physical layer of the receiver
+	 */
+	public void attach(PHY receiver) {
+		DataLink dataLinkLayer = receiver.getDataLinkLayer();
+		if (dataLinkLayer != null) {
+			receiverIndex.add(dataLinkLayer.getSourceAddress(), receiver);
+		}
+	}
+
+	/**
+	 * puts a frame as String of line code on the medium
+	 *
+	 * @param lineCode the encoded frame
+	 * @return <code>List</code> of the receivers the frame was handed to
+	 */
+	public List<PHY> transmit(String lineCode) {
+		try {
+			List<PHY> receivers = this.lookUp(codec.decodeHeader(lineCode, DataLink.getHeaderBytes()));
+			if (!receivers.isEmpty()) {
+				this.dispatch(FrameBuffer.wrap(codec.decode(lineCode)), receivers);
+			}
+			return receivers;
+		} catch (DecodeException e) {
+			physicalMetrics.countDecodeError();
+			throw e;
+		}
+	}
+
+	/**
+	 * puts a frame as bit-packed line code on the medium
+	 *
+	 * @param lineCode the encoded frame
+	 * @return <code>List</code> of the receivers the frame was handed to
+	 */
+	public List<PHY> transmit(ByteBuffer lineCode) {
+		List<PHY> receivers = this.lookUp(lineCode);
+		if (!receivers.isEmpty()) {
+			FrameBuffer decodedFrame = this.decode(lineCode);
+			try {
+				this.dispatch(decodedFrame, receivers);
+			} finally {
+				decodedFrame.release();
+			}
+		}
+		return receivers;
+	}
+
+	/**
+	 * decodes only the header of a bit-packed frame and looks up the receivers it
+	 * is intended for.<br>
+	 * The medium is not changed, so this can be called concurrently.
+	 * 
+	 * @param lineCode the encoded frame
+	 * @return <code>List</code> of the receivers with a matching address
+	 */
+	List<PHY> lookUp(ByteBuffer lineCode) {
+		try {
+			return this.lookUp(getBinaryCodec().decodeBinaryHeader(lineCode, DataLink.getHeaderBytes()));
+		} catch (DecodeException e) {
+			physicalMetrics.countDecodeError();
+			throw e;
+		}
+	}
+
+	/**
+	 * decodes a whole bit-packed frame into a frame buffer of the frame pool
+	 * 
+	 * @param lineCode the encoded frame
+	 * @return <code>FrameBuffer</code> holding the decoded frame, which has to be
+	 *         released
+	 */
+	FrameBuffer decode(ByteBuffer lineCode) {
+		try {
+			return PHY.decodeFrame(getBinaryCodec(), lineCode);
+		} catch (DecodeException e) {
+			physicalMetrics.countDecodeError();
+			throw e;
+		}
+	}
+
+	private List<PHY> lookUp(byte[] decodedHeader) {
+		// look up the destination address without copying it out of the header, the
+		// list is empty if the frame is not intended for any attached receiver
+		return receiverIndex.get(DataLink.readDestinationAddress(FrameBuffer.wrap(decodedHeader)));
+	}
+
+	private BinaryCodec getBinaryCodec() {
+		if (codec instanceof BinaryCodec) {
+			return (BinaryCodec) codec;
+		} else {
+			throw new UnsupportedOperationException("Codec does not support binary line code!!!");
+		}
+	}
+
+	private void dispatch(FrameBuffer decodedFrame, List<PHY> receivers) {
+		for (PHY receiver : receivers) {
+			// every receiver gets its own window, because the layers move the window
+			receiver.receive(decodedFrame.duplicate());
+		}
+	}
+}
@@ -1,13 +1,19 @@
 package osi.layer.transport;
 
-import java.math.BigInteger;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import osi.exception.TransportException;
+import osi.layer.Address;
+import osi.layer.FrameBuffer;
 import osi.layer.ConnectionlessServicePrimitives;
 import osi.layer.Layer;
 import osi.layer.application.DataTransfer;
 import osi.layer.network.Network;
+import osi.metrics.FrameEvent;
+import osi.metrics.Metrics;
 
 /**
  * First Layer of the given OSI model.<br>
@@ -17,17 +23,16 @@ import osi.layer.network.Network;
  * transmission. This layer is essential for end-to-end connection.
  * 
  * @author Jason Nock
- * @version 2.7
+ * @version 2.8
  */
 public class Transport extends Layer implements ConnectionlessServicePrimitives {
 
-	private byte[] sourcePort;
+	private short sourcePort;
 
 	final static int PORTBYTES = 2;
 	final static int LENGTHBYTES = 2;
 	final static int PCIBYTES = 6;
 	final static byte[] TRANSPORTPROTOCOL = { 17 };
-	final static int MAXDATASIZE = 1472;
 
 	/**
 	 * This method constructs an instance of the layer.<br>
@@ -40,14 +45,40 @@ public class Transport extends Layer implements ConnectionlessServicePrimitives
 	 * @param networkLayer is an access pointer to the lower layer
 	 */
 	public Transport(byte[] sourcePort, Layer networkLayer) {
+		this(toPort(sourcePort), networkLayer);
+	}
+
+	/**
+	 * This method constructs an instance of the layer with a port given as
+	 * primitive value.<br>
+	 * It works like {@link #Transport(byte[], Layer)}, but the 2 bytes of the port
+	 * are given as <code>short</code>.
+	 * 
+	 * @param sourcePort   contains sender and receiver access information
+	 * @param networkLayer is an access pointer to the lower layer
+	 */
+	public Transport(short sourcePort, Layer networkLayer) {
 		super(networkLayer);
+		this.sourcePort = sourcePort;
+	}
+
+	private static short toPort(byte[] sourcePort) throws TransportException {
 		if (sourcePort.length == PORTBYTES) {
-			this.sourcePort = sourcePort;
+			return Address.readPort(sourcePort, 0);
 		} else {
 			throw new TransportException("Wrong size for port!!!");
 		}
 	}
 
+	/**
+	 * grants access to the source port of this layer
+	 * 
+	 * @return the source port
+	 */
+	public short getSourcePort() {
+		return sourcePort;
+	}
+
 	/**
 	 * requests services from its lower layer and hands it its processed data.<br>
 	 * This method ensures that the assigned lower layer is an instance of Network,
@@ -63,7 +94,7 @@ public class Transport extends Layer implements ConnectionlessServicePrimitives
 	 *                            with size of 2 bytes. It gets processed into the
 	 *                            layer PCI.
 	 * @param serviceDataUnit     contains the user input datagram with a size of 0
-	 *                            - 1472 Bytes.
+	 *                            Bytes up to the MTU reduced by 15 Bytes.
 	 * @param networkDestination  contains the network destination address with size
 	 *                            of 4 bytes. This data gets processed in a lower
 	 *                            layer
@@ -74,44 +105,143 @@ public class Transport extends Layer implements ConnectionlessServicePrimitives
 	 */
 	@Override
 	public String req(byte[]... params) throws TransportException {
-		byte[] destinationPort = params[0];
-		byte[] serviceDataUnit = params[1];
-		byte[] networkDestination = params[2];
-		byte[] dataLinkDestination = params[3];
+		// copy the service data unit once into a frame buffer with room for all PCIs
+		// and continue without further copies
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[1]);
+		try {
+			return this.req(frame, params[0], params[2], params[3]);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * requests services from its lower layer and hands it its processed data.<br>
+	 * It works like {@link #req(byte[]...)}, but the lower layers return the line
+	 * code in its bit-packed binary form.
+	 * 
+	 * @param params the same parameters as for {@link #req(byte[]...)}
+	 * @return <code>ByteBuffer</code> of bit-packed encoded data to users
+	 *         interface.
+	 */
+	@Override
+	public ByteBuffer reqBinary(byte[]... params) throws TransportException {
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(this.getHeadroom(), params[1]);
+		try {
+			return this.reqBinary(frame, params[0], params[2], params[3]);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * requests services from its lower layer and hands it the frame buffer.<br>
+	 * It works like {@link #req(byte[]...)}, but this layers protocol control
+	 * information is written into the given frame buffer in place.
+	 * 
+	 * @param frame  holds the user input datagram with a size of 0 Bytes up to
+	 *               the MTU reduced by 15 Bytes.
+	 * @param params the destination port, the network destination address and the
+	 *               data link destination address
+	 * @return <code>String</code> of encoded data to users interface.
+	 */
+	@Override
+	public String req(FrameBuffer frame, byte[]... params) throws TransportException {
+		long startTime = Metrics.startTime();
+		byte[] networkDestination = params[1];
+		byte[] dataLinkDestination = params[2];
 		String encodedPackage = "";
-		int dataSize = serviceDataUnit.length;
-		byte[] pdu = new byte[PCIBYTES + dataSize];
 		if (this.lowerLayer instanceof Network) {
 			// set static value for transport protocol
 			byte[] transportProtocol = TRANSPORTPROTOCOL;
-			if (serviceDataUnit.length <= MAXDATASIZE) {
-				if (destinationPort.length == PORTBYTES) {
-					byte[] sduLength = BigInteger.valueOf(dataSize).toByteArray();
-					if (sduLength.length < LENGTHBYTES) {
-						// if the data is smaller than 1 byte we have to swap the bytes spots within
-						// the array
-						sduLength = Arrays.copyOf(sduLength, LENGTHBYTES);
-						byte storedValue = sduLength[0];
-						sduLength[0] = sduLength[1];
-						sduLength[1] = storedValue;
-					}
-					// append the given data to the required data frame
-					System.arraycopy(sourcePort, 0, pdu, 0, PORTBYTES);
-					System.arraycopy(destinationPort, 0, pdu, PORTBYTES, PORTBYTES);
-					System.arraycopy(sduLength, 0, pdu, 2 * PORTBYTES, LENGTHBYTES);
-					System.arraycopy(serviceDataUnit, 0, pdu, PCIBYTES, dataSize);
-					// pass the processed data to the lower layer, which provides services for this
-					// layer and returns the data
-					encodedPackage = ((Network) this.lowerLayer).req(networkDestination, transportProtocol, pdu,
-							dataLinkDestination);
-				} else {
-					throw new TransportException("Wrong size for port!!!");
-				}
+			this.addPCI(frame, params[0], this.getMaxDataSize());
+			// pass the processed data to the lower layer, which provides services for this
+			// layer and returns the data
+			encodedPackage = ((Network) this.lowerLayer).req(frame, networkDestination, transportProtocol,
+					dataLinkDestination);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * requests services from its lower layer and hands it the frame buffer.<br>
+	 * It works like {@link #req(FrameBuffer, byte[]...)}, but the lower layers
+	 * return the line code in its bit-packed binary form.
+	 * 
+	 * @param frame  holds the user input datagram
+	 * @param params the destination port, the network destination address and the
+	 *               data link destination address
+	 * @return <code>ByteBuffer</code> of bit-packed encoded data to users
+	 *         interface.
+	 */
+	@Override
+	public ByteBuffer reqBinary(FrameBuffer frame, byte[]... params) throws TransportException {
+		long startTime = Metrics.startTime();
+		byte[] networkDestination = params[1];
+		byte[] dataLinkDestination = params[2];
+		ByteBuffer encodedPackage = ByteBuffer.allocate(0);
+		if (this.lowerLayer instanceof Network) {
+			this.addPCI(frame, params[0], this.getMaxDataSize());
+			encodedPackage = ((Network) this.lowerLayer).reqBinary(frame, networkDestination, TRANSPORTPROTOCOL,
+					dataLinkDestination);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackage;
+	}
+
+	/**
+	 * requests services from its lower layer for a batch of frames.<br>
+	 * It works like {@link #reqBinary(FrameBuffer, byte[]...)}, but the maximal
+	 * size of a service data unit is derived once, this layers PCI is written into
+	 * every frame and the whole batch is handed to the lower layer.
+	 * 
+	 * @param frames hold the user input datagrams
+	 * @param params the destination port, the network destination address and the
+	 *               data link destination address
+	 * @return <code>List</code> of bit-packed encoded data to users interface.
+	 */
+	@Override
+	public List<ByteBuffer> reqBatch(List<FrameBuffer> frames, byte[]... params) throws TransportException {
+		long startTime = Metrics.startTime();
+		List<ByteBuffer> encodedPackages = Collections.emptyList();
+		if (this.lowerLayer instanceof Network) {
+			int maxDataSize = this.getMaxDataSize();
+			for (FrameBuffer frame : frames) {
+				this.addPCI(frame, params[0], maxDataSize);
+			}
+			encodedPackages = ((Network) this.lowerLayer).reqBatch(frames, params[1], TRANSPORTPROTOCOL, params[2]);
+		}
+		this.metrics.recordRequest(startTime);
+		return encodedPackages;
+	}
+
+	@Override
+	protected int getPCIBytes() {
+		return PCIBYTES;
+	}
+
+	private void addPCI(FrameBuffer frame, byte[] destinationPort, int maxDataSize) throws TransportException {
+		FrameEvent event = this.beginEvent(FrameEvent.REQUEST, frame, false);
+		int dataSize = frame.getLength();
+		if (dataSize <= maxDataSize) {
+			if (destinationPort.length == PORTBYTES) {
+				// write the given data into the required data frame in front of the sdu
+				int offset = frame.push(PCIBYTES);
+				byte[] pdu = frame.getBuffer();
+				Address.writePort(pdu, offset, sourcePort);
+				System.arraycopy(destinationPort, 0, pdu, offset + PORTBYTES, PORTBYTES);
+				// the size of the service data unit is stored as unsigned big endian value
+				pdu[offset + 2 * PORTBYTES] = (byte) (dataSize >>> 8);
+				pdu[offset + 2 * PORTBYTES + 1] = (byte) dataSize;
+				this.metrics.countSent(dataSize);
+				event.finish(FrameEvent.SENT, pdu, offset, offset + PORTBYTES, PORTBYTES);
 			} else {
-				throw new TransportException("Wrong size for service data unit!!!");
+				throw new TransportException("Wrong size for port!!!");
 			}
+		} else {
+			throw new TransportException("Wrong size for service data unit!!!");
 		}
-		return encodedPackage;
 	}
 
 	/**
@@ -129,24 +259,99 @@ public class Transport extends Layer implements ConnectionlessServicePrimitives
 	 */
 	@Override
 	public byte[] ind(byte[] serviceDataUnit) {
-		// copy the destination port into byte array
-		byte[] destinationPort = Arrays.copyOfRange(serviceDataUnit, PORTBYTES, 2 * PORTBYTES);
-		int dataSize = serviceDataUnit.length;
-		byte[] sdu = new byte[dataSize - PCIBYTES];
-		// compare if the source port matches the destination port
-		if (Arrays.equals(sourcePort, destinationPort)) {
-			// cuts this layers PCI
-			sdu = Arrays.copyOfRange(serviceDataUnit, PCIBYTES, dataSize);
+		return this.ind(FrameBuffer.wrap(serviceDataUnit));
+	}
+
+	/**
+	 * provides services for the lower layer and passes the frame buffer to the
+	 * upper layer<br>
+	 * It works like {@link #ind(byte[])}, but the destination port is compared
+	 * within the window of the frame buffer and the PCI is pulled from its front.
+	 * The window is cut to the size stored in the PCI, which removes the filler of
+	 * the lower layers.
+	 * 
+	 * @param frame holds the users input data with the header from all upper
+	 *              layers
+	 * @return <code>byte[]</code> of users data input, if all circumstances are
+	 *         true
+	 */
+	@Override
+	public byte[] ind(FrameBuffer frame) {
+		long startTime = Metrics.startTime();
+		// returning null means the package is not intended for this receiver
+		byte[] receivedData = null;
+		if (this.cutPCIs(frame)) {
 			// check if upper Layer exists
 			if (this.upperLayer != null) {
 				// pass the processed data to the upper layer
-				return ((DataTransfer) this.upperLayer).ind(sdu);
+				receivedData = ((DataTransfer) this.upperLayer).ind(frame);
 			} else {
-				return sdu;
+				receivedData = frame.toByteArray();
 			}
+		}
+		this.metrics.recordIndication(startTime);
+		return receivedData;
+	}
+
+	/**
+	 * provides services for the lower layer and passes a batch of frames to the
+	 * upper layer<br>
+	 * It works like {@link #ind(FrameBuffer)}, but the PCI of every frame is
+	 * checked and cut before the frames intended for this receiver are handed to
+	 * the upper layer as one batch.
+	 * 
+	 * @param frames hold the users input data with the header from all upper
+	 *               layers, null for frames dropped by a lower layer
+	 * @return <code>List</code> of users data input in the order of the frames,
+	 *         null for every frame not intended for this receiver
+	 */
+	@Override
+	public List<byte[]> indBatch(List<FrameBuffer> frames) {
+		long startTime = Metrics.startTime();
+		List<FrameBuffer> accepted = new ArrayList<FrameBuffer>(frames.size());
+		for (FrameBuffer frame : frames) {
+			// a dropped frame stays in the batch as null, so the results keep the order
+			// of the frames
+			accepted.add((frame != null && this.cutPCIs(frame)) ? frame : null);
+		}
+		List<byte[]> receivedData;
+		if (this.upperLayer != null) {
+			receivedData = ((DataTransfer) this.upperLayer).indBatch(accepted);
+		} else {
+			receivedData = FrameBuffer.toByteArrays(accepted);
+		}
+		this.metrics.recordIndication(startTime);
+		return receivedData;
+	}
+
+	/**
+	 * checks the destination port of a received frame and cuts this layers PCI,
+	 * but does not hand the frame to the upper layer.<br>
+	 * This allows to process the headers of many frames concurrently, while the
+	 * upper layer still receives the fragments one after another.
+	 * 
+	 * @param frame holds the sdu of the network layer
+	 * @return <code>true</code> if the frame is intended for this receiver
+	 */
+	public boolean cutPCIs(FrameBuffer frame) {
+		FrameEvent event = this.beginEvent(FrameEvent.INDICATION, frame, true);
+		byte[] serviceDataUnit = frame.getBuffer();
+		int offset = frame.getOffset();
+		this.metrics.countReceived(frame.getLength());
+		// compare if the source port matches the destination port in place
+		if (frame.getLength() >= PCIBYTES && Address.readPort(serviceDataUnit, offset + PORTBYTES) == sourcePort) {
+			// read the size of the sdu, note the sender and cut this layers PCI
+			frame.setSourcePort(Address.readPort(serviceDataUnit, offset));
+			int dataSize = (serviceDataUnit[offset + 2 * PORTBYTES] & 0xff) << 8
+					| serviceDataUnit[offset + 2 * PORTBYTES + 1] & 0xff;
+			frame.pull(PCIBYTES);
+			frame.trimTo(dataSize);
+			event.finish(FrameEvent.DELIVERED, serviceDataUnit, offset, offset + PORTBYTES, PORTBYTES);
+			return true;
 		} else {
-			// returning null means the package is not intended for this receiver
-			return null;
+			this.metrics.countDropped();
+			event.finish(FrameEvent.FILTERED, serviceDataUnit, offset, offset + PORTBYTES, PORTBYTES);
+			return false;
 		}
 	}
 }
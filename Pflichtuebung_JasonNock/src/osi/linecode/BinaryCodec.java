@@ -0,0 +1,99 @@
+package osi.linecode;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import osi.exception.DecodeException;
+
+/**
+ * <p>
+ * A binary codec translates data into a bit-packed line code.<br>
+ * Unlike {@link Codec} the line code is not represented as a String holding
+ * one char per bit, but as bytes holding eight bits each. The symbols are
+ * packed most significant bit first, a partly filled last byte is padded with
+ * zero bits.
+ */
+public interface BinaryCodec {
+
+	/**
+	 * converts information by a set of specific rules into a bit-packed line code
+	 * 
+	 * @param data to be converted
+	 * @return <code>ByteBuffer</code> data in converted and packed form, ready to
+	 *         be read from its position to its limit
+	 */
+	ByteBuffer encodeBinary(byte[] data);
+
+	/**
+	 * converts a section of an array by a set of specific rules into a bit-packed
+	 * line code
+	 * 
+	 * @param data   array holding the data to be converted
+	 * @param offset index of the first byte to be converted
+	 * @param length number of bytes to be converted
+	 * @return <code>ByteBuffer</code> data in converted and packed form, which
+	 *         does not share the given array, so the array can be reused at once
+	 */
+	default ByteBuffer encodeBinary(byte[] data, int offset, int length) {
+		return encodeBinary(Arrays.copyOfRange(data, offset, offset + length));
+	}
+
+	/**
+	 * decodes a bit-packed stream of encoded data<br>
+	 * The remaining bytes of the buffer get decoded, the position of the buffer is
+	 * not changed. That way the same line code can be decoded by several
+	 * receivers.
+	 * 
+	 * @param data to be decoded
+	 * @return <code>byte[]</code> decoded data
+	 * @throws DecodeException - error that is thrown if data can not be decoded
+	 */
+	byte[] decodeBinary(ByteBuffer data) throws DecodeException;
+
+	/**
+	 * determines how many bytes decoding a bit-packed stream yields at most.<br>
+	 * This is the number of remaining bytes of the buffer, codecs which compress
+	 * the data have to override it.
+	 * 
+	 * @param data to be decoded
+	 * @return maximal number of decoded bytes
+	 */
+	default int getMaxDecodedLength(ByteBuffer data) {
+		return data.remaining();
+	}
+
+	/**
+	 * decodes a bit-packed stream of encoded data into the given array.<br>
+	 * It works like {@link #decodeBinary(ByteBuffer)}, but the decoded data is
+	 * written into an array of the caller, which can be reused for many frames.
+	 * 
+	 * @param data   to be decoded
+	 * @param target array, which has to hold {@link #getMaxDecodedLength(ByteBuffer)}
+	 *               bytes behind the offset
+	 * @param offset index in the array of the first decoded byte
+	 * @return number of decoded bytes
+	 * @throws DecodeException - error that is thrown if data can not be decoded
+	 */
+	default int decodeBinary(ByteBuffer data, byte[] target, int offset) throws DecodeException {
+		byte[] decoded = decodeBinary(data);
+		System.arraycopy(decoded, 0, target, offset, decoded.length);
+		return decoded.length;
+	}
+
+	/**
+	 * decodes only the beginning of a bit-packed stream of encoded data.<br>
+	 * This allows to inspect the header of a frame without decoding the whole
+	 * frame. The end of the stream is not checked and the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param data   to be decoded
+	 * @param length number of bytes to be decoded at most
+	 * @return <code>byte[]</code> the first decoded bytes, shorter than length if
+	 *         the data holds less bytes
+	 * @throws DecodeException - error that is thrown if data can not be decoded
+	 */
+	default byte[] decodeBinaryHeader(ByteBuffer data, int length) throws DecodeException {
+		byte[] decoded = decodeBinary(data);
+		return Arrays.copyOf(decoded, Math.min(length, decoded.length));
+	}
+}
@@ -1,5 +1,7 @@
 package osi.linecode;
 
+import java.util.Arrays;
+
 import osi.exception.DecodeException;
 
 /**
@@ -17,6 +19,18 @@ public interface Codec {
 	 */
 	String encode(byte[] data);
 
+	/**
+	 * converts a section of an array by a set of specific rules
+	 * 
+	 * @param data   array holding the data to be converted
+	 * @param offset index of the first byte to be converted
+	 * @param length number of bytes to be converted
+	 * @return <code>String</code> data in converted form
+	 */
+	default String encode(byte[] data, int offset, int length) {
+		return encode(Arrays.copyOfRange(data, offset, offset + length));
+	}
+
 	/**
 	 * decodes a stream of encoded data
 	 * 
@@ -25,4 +39,20 @@ public interface Codec {
 	 * @throws DecodeException - error that is thrown if data can not be decoded
 	 */
 	byte[] decode(String data) throws DecodeException;
+
+	/**
+	 * decodes only the beginning of a stream of encoded data.<br>
+	 * This allows to inspect the header of a frame without decoding the whole
+	 * frame. The end of the stream is not checked.
+	 * 
+	 * @param data   to be decoded
+	 * @param length number of bytes to be decoded at most
+	 * @return <code>byte[]</code> the first decoded bytes, shorter than length if
+	 *         the data holds less bytes
+	 * @throws DecodeException - error that is thrown if data can not be decoded
+	 */
+	default byte[] decodeHeader(String data, int length) throws DecodeException {
+		byte[] decoded = decode(data);
+		return Arrays.copyOf(decoded, Math.min(length, decoded.length));
+	}
 }
\ No newline at end of file
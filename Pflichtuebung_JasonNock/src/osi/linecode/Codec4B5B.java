@@ -1,5 +1,11 @@
 package osi.linecode;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
 import osi.exception.DecodeException;
 
 /**
@@ -8,20 +14,27 @@ import osi.exception.DecodeException;
  * You can either decode or encode the given data. <br>
  * When encoding the data, the public Method encode gets called, which calls a
  * private function to operate the encoding. In the private encodeOperation
- * Method the input data as Array of Bytes is converted into a String of its
- * assigned Hexadecimal values. This will be transformed into a String of its
- * assigned 4B5B Code values and returns the encoded data as String of 4B5B
- * code. <br>
+ * Method the output buffer is sized once for the delimiters and ten symbol
+ * chars per input byte. Every byte of the input data is looked up in a
+ * precomputed table holding the two 4B5B symbols of its high and low nibble,
+ * which get copied straight into the output buffer. <br>
  * When decoding the data the public Method decode gets called, which calls a
  * private function to operate the decoding. In the private decodeOperation
- * Method the input as String of 4B5B code gets checked if the input is valid
- * and converts the 4B5B code content into a String of its assigned Hexadecimal
- * values, converted into a Array of byte and returned.
+ * Method the input as String of 4B5B code gets checked if the input is valid.
+ * Every 5 char symbol is read as 5 bit value and looked up in a table
+ * returning its assigned nibble. Two nibbles are combined into a byte and
+ * written into the pre-sized output array, which gets returned. <br>
+ * Both directions run in linear time and allocate a fixed number of objects
+ * per frame. <br>
+ * Besides the String representation the codec offers a bit-packed binary
+ * line code, in which every byte of data takes ten bits instead of ten chars.
+ * The binary line code can also be streamed between channels chunk by chunk,
+ * which allows converting data larger than the available memory.
  * 
  * @author Jason Nock
- * @version 2.7
+ * @version 2.8
  */
-public class Codec4B5B implements Codec {
+public class Codec4B5B implements Codec, BinaryCodec, StreamCodec {
 
 	/**
 	 * 4B5B function quiet (for further operation)
@@ -63,92 +76,126 @@ public class Codec4B5B implements Codec {
 	 */
 	final static String CTRLH = "00100";
 
+	/**
+	 * start condition of every encoded frame
+	 */
+	final static String STARTDELIMITER = CTRLJ + CTRLK;
+
+	/**
+	 * end condition of every encoded frame
+	 */
+	final static String ENDDELIMITER = CTRLT + CTRLR;
+
+	/**
+	 * number of chars of a single 4B5B symbol
+	 */
+	final static int SYMBOLLENGTH = 5;
+
+	/**
+	 * number of chars a single byte is encoded into (two symbols)
+	 */
+	final static int BYTELENGTH = 2 * SYMBOLLENGTH;
+
+	/**
+	 * number of chars of a start or end delimiter (two symbols)
+	 */
+	final static int DELIMITERLENGTH = 2 * SYMBOLLENGTH;
+
+	/**
+	 * 4B5B data symbols, the index of the array equals the encoded nibble
+	 */
+	final static String[] DATASYMBOLS = { "11110", "01001", "10100", "10101", "01010", "01011", "01110", "01111",
+			"10010", "10011", "10110", "10111", "11010", "11011", "11100", "11101" };
+
+	/**
+	 * number of bits a single byte is encoded into (two symbols)
+	 */
+	final static int BYTEBITS = 2 * SYMBOLLENGTH;
+
+	/**
+	 * 4B5B start condition as 10 bit value
+	 */
+	final static int STARTBITS = Integer.parseInt(STARTDELIMITER, 2);
+
+	/**
+	 * 4B5B end condition as 10 bit value
+	 */
+	final static int ENDBITS = Integer.parseInt(ENDDELIMITER, 2);
+
+	/**
+	 * number of bytes read from a channel at once when streaming
+	 */
+	final static int CHUNKSIZE = 8192;
+
+	/**
+	 * marks a 5 bit value in the decode table as 4B5B control function
+	 */
+	final static byte CONTROLSYMBOL = -1;
+
+	/**
+	 * marks a 5 bit value in the decode table as undefined 4B5B code
+	 */
+	final static byte INVALIDSYMBOL = -2;
+
+	/**
+	 * holds the ten symbol chars of every possible byte value, the chars of byte
+	 * value b start at index b * BYTELENGTH
+	 */
+	private static final char[] ENCODETABLE = new char[256 * BYTELENGTH];
+
+	/**
+	 * holds the two symbols of every possible byte value as 10 bit value
+	 */
+	final static short[] ENCODEBITSTABLE = new short[256];
+
+	/**
+	 * maps every 5 bit value to its nibble, a control function or undefined code
+	 */
+	private static final byte[] DECODETABLE = new byte[32];
+
+	static {
+		// fill the encode table with the symbols of the high and the low nibble
+		for (int value = 0; value < 256; value++) {
+			DATASYMBOLS[value >>> 4].getChars(0, SYMBOLLENGTH, ENCODETABLE, value * BYTELENGTH);
+			DATASYMBOLS[value & 0x0f].getChars(0, SYMBOLLENGTH, ENCODETABLE, value * BYTELENGTH + SYMBOLLENGTH);
+			String symbols = new String(ENCODETABLE, value * BYTELENGTH, BYTELENGTH);
+			ENCODEBITSTABLE[value] = (short) Integer.parseInt(symbols, 2);
+		}
+		// every 5 bit value is undefined until it gets assigned
+		Arrays.fill(DECODETABLE, INVALIDSYMBOL);
+		for (int nibble = 0; nibble < DATASYMBOLS.length; nibble++) {
+			DECODETABLE[Integer.parseInt(DATASYMBOLS[nibble], 2)] = (byte) nibble;
+		}
+		// declare decoding of 4B5B control functions only relevant for further
+		// operation
+		for (String control : new String[] { CTRLQ, CTRLI, CTRLJ, CTRLK, CTRLT, CTRLR, CTRLS, CTRLH }) {
+			DECODETABLE[Integer.parseInt(control, 2)] = CONTROLSYMBOL;
+		}
+	}
+
 	@Override
 	public String encode(byte[] data) {
-		return this.encodeOperation(data); // call of capsuled operation function
+		return this.encodeOperation(data, 0, data.length); // call of capsuled operation function
 	}
 
-	private String encodeOperation(byte[] data) {
-		String hexaString = "";
-		String tempString = "";
-		int tempConvert;
-		for (int i = 0; i < data.length; i++) {
-			// byte[] is an Array of signed 8-Bit Values
-			// for the conversion we need unsigned 8-Bit Values, if the byte value is
-			// negative we need to convert it into an Integer
-			if (data[i] < 0) {
-				tempConvert = data[i] & 0xff;
-			} else {
-				tempConvert = data[i];
-			}
-			tempString = Integer.toHexString(tempConvert); // converts bytes of text input to Hexa String
-			if (tempString.length() < 2) {
-				tempString = "0" + tempString;
-			}
-			hexaString += tempString; // concatenates every Hexa String
-		}
-		return convertHexaIn4B5B(hexaString); // return the 4B5B code
+	@Override
+	public String encode(byte[] data, int offset, int length) {
+		return this.encodeOperation(data, offset, length); // call of capsuled operation function
 	}
 
-	private String convertHexaIn4B5B(String textAsHexa) {
-		String coded4B5B = "";
-		coded4B5B += CTRLJ + CTRLK; // append start condition to converted String
-		for (int i = 0; i < textAsHexa.length(); i++) {
-			// convert every Hexa Value into assigned 4B5B code and write it into converted
-			// String
-			switch (textAsHexa.charAt(i)) {
-			case '0':
-				coded4B5B += "11110";
-				break;
-			case '1':
-				coded4B5B += "01001";
-				break;
-			case '2':
-				coded4B5B += "10100";
-				break;
-			case '3':
-				coded4B5B += "10101";
-				break;
-			case '4':
-				coded4B5B += "01010";
-				break;
-			case '5':
-				coded4B5B += "01011";
-				break;
-			case '6':
-				coded4B5B += "01110";
-				break;
-			case '7':
-				coded4B5B += "01111";
-				break;
-			case '8':
-				coded4B5B += "10010";
-				break;
-			case '9':
-				coded4B5B += "10011";
-				break;
-			case 'a':
-				coded4B5B += "10110";
-				break;
-			case 'b':
-				coded4B5B += "10111";
-				break;
-			case 'c':
-				coded4B5B += "11010";
-				break;
-			case 'd':
-				coded4B5B += "11011";
-				break;
-			case 'e':
-				coded4B5B += "11100";
-				break;
-			case 'f':
-				coded4B5B += "11101";
-				break;
-			}
+	private String encodeOperation(byte[] data, int offset, int length) {
+		// size the output once: start condition, ten chars per byte, end condition
+		char[] coded4B5B = new char[2 * DELIMITERLENGTH + length * BYTELENGTH];
+		STARTDELIMITER.getChars(0, DELIMITERLENGTH, coded4B5B, 0); // append start condition
+		int position = DELIMITERLENGTH;
+		for (int i = offset; i < offset + length; i++) {
+			// byte[] is an Array of signed 8-Bit Values, the table is indexed by the
+			// unsigned value
+			System.arraycopy(ENCODETABLE, (data[i] & 0xff) * BYTELENGTH, coded4B5B, position, BYTELENGTH);
+			position += BYTELENGTH;
 		}
-		coded4B5B += CTRLT + CTRLR; // append end condition to converted String
-		return coded4B5B; // return converted 4B5B String
+		ENDDELIMITER.getChars(0, DELIMITERLENGTH, coded4B5B, position); // append end condition
+		return new String(coded4B5B); // return converted 4B5B String
 	}
 
 	@Override
@@ -157,22 +204,13 @@ public class Codec4B5B implements Codec {
 	}
 
 	private byte[] decodeOperation(String data) {
-		if (data.startsWith(CTRLJ + CTRLK)) { // check if input start with starting condition
-			data = data.substring(10); // cut start condition
-			if (data.endsWith(CTRLT + CTRLR)) { // check if input ends with ending condition
-				data = data.substring(0, data.length() - 10); // cut end condition
-				if (data.length() % 5 == 0) { // check if input length is multiple of 5 (4B5B length equals 5 chars)
-					String textAsHexa = "";
-					textAsHexa = convert4B5BInHexa(data);
-					// split text bytes into Array of single chars, every spot in array holds hexa
-					// value of a single character
-					String[] singleChar = textAsHexa.split(" ");
-					byte[] textContent = new byte[singleChar.length];
-					// go through each array spot and convert hexa string value into integer
-					for (int i = 0; i < singleChar.length; i++) {
-						// the converted integer matches the ASCII value of the text
-						textContent[i] = (byte) Integer.parseInt(singleChar[i], 16);
-					}
+		if (data.startsWith(STARTDELIMITER)) { // check if input start with starting condition
+			// check if input ends with ending condition behind the start condition
+			if (data.length() >= 2 * DELIMITERLENGTH && data.endsWith(ENDDELIMITER)) {
+				int payloadLength = data.length() - 2 * DELIMITERLENGTH;
+				if (payloadLength % BYTELENGTH == 0) { // check if input length is multiple of 10 (one byte)
+					byte[] textContent = new byte[payloadLength / BYTELENGTH];
+					convert4B5BInBytes(data, textContent);
 					return textContent;
 				} else { // input length invalid
 					throw new DecodeException("Wrong data size!!!");
@@ -185,104 +223,297 @@ public class Codec4B5B implements Codec {
 		}
 	}
 
-	private String convert4B5BInHexa(String encoded4B5B) {
-		String textAsHexa = "";
-		String single4B5BChar = "";
-		for (int i = 0; i < encoded4B5B.length() / 5; i++) { // go through whole 4B5B input
-			single4B5BChar = "";
-			for (int indexCounter = 0; indexCounter < 5; indexCounter++) {
-				// cache 5 indexes of full 4B5B code into temporary string single4B5BChar
-				// (4B5B length equals 5 chars)
-				single4B5BChar += encoded4B5B.charAt(indexCounter + (i * 5));
-			}
-			switch (single4B5BChar) {
-			// check temporary String of single 4B5B codesection and convert it into Hexa
-			// Value
-			case "11110":
-				textAsHexa += "0";
-				break;
-			case "01001":
-				textAsHexa += "1";
-				break;
-			case "10100":
-				textAsHexa += "2";
-				break;
-			case "10101":
-				textAsHexa += "3";
-				break;
-			case "01010":
-				textAsHexa += "4";
-				break;
-			case "01011":
-				textAsHexa += "5";
-				break;
-			case "01110":
-				textAsHexa += "6";
-				break;
-			case "01111":
-				textAsHexa += "7";
-				break;
-			case "10010":
-				textAsHexa += "8";
-				break;
-			case "10011":
-				textAsHexa += "9";
-				break;
-			case "10110":
-				textAsHexa += "a";
-				break;
-			case "10111":
-				textAsHexa += "b";
-				break;
-			case "11010":
-				textAsHexa += "c";
-				break;
-			case "11011":
-				textAsHexa += "d";
-				break;
-			case "11100":
-				textAsHexa += "e";
-				break;
-			case "11101":
-				textAsHexa += "f";
-				break;
-			case CTRLQ:
-				// declare decoding of 4B5B control functions only relevant for further
-				// operation
-				textAsHexa += "Q";
-				break;
-			case CTRLI:
-				textAsHexa += "I";
-				break;
-			case CTRLJ:
-				textAsHexa += "J";
-				break;
-			case CTRLK:
-				textAsHexa += "K";
-				break;
-			case CTRLT:
-				textAsHexa += "T";
-				break;
-			case CTRLR:
-				textAsHexa += "R";
-				break;
-			case CTRLS:
-				textAsHexa += "S";
-				break;
-			case CTRLH:
-				textAsHexa += "H";
-				break;
-			default:
-				// throw Exception if 4B5B code does not match a valid value or function
+	@Override
+	public byte[] decodeHeader(String data, int length) throws DecodeException {
+		if (data.startsWith(STARTDELIMITER)) { // check if input start with starting condition
+			// decode the requested bytes behind the start condition, as far as available
+			int availableBytes = Math.max(0, (data.length() - 2 * DELIMITERLENGTH) / BYTELENGTH);
+			byte[] header = new byte[Math.min(length, availableBytes)];
+			convert4B5BInBytes(data, header);
+			return header;
+		} else { // start condition missing
+			throw new DecodeException("StartDelimiter missing!!!");
+		}
+	}
+
+	private void convert4B5BInBytes(String encoded4B5B, byte[] textContent) {
+		int position = DELIMITERLENGTH;
+		for (int i = 0; i < textContent.length; i++) {
+			// combine the nibbles of two symbols into one byte
+			int highNibble = convert4B5BInNibble(encoded4B5B, position);
+			int lowNibble = convert4B5BInNibble(encoded4B5B, position + SYMBOLLENGTH);
+			textContent[i] = (byte) (highNibble << 4 | lowNibble);
+			position += BYTELENGTH;
+		}
+	}
+
+	private int convert4B5BInNibble(String encoded4B5B, int position) {
+		int symbol = 0;
+		for (int indexCounter = 0; indexCounter < SYMBOLLENGTH; indexCounter++) {
+			// read the 5 chars of the symbol as 5 bit value
+			char bit = encoded4B5B.charAt(position + indexCounter);
+			if (bit == '0') {
+				symbol = symbol << 1;
+			} else if (bit == '1') {
+				symbol = symbol << 1 | 1;
+			} else {
 				throw new DecodeException("Undefined 4B5B Code");
 			}
-			if ((i + 1) % 2 == 0) {
-				// sets spacebar after 2 chars
-				// Every ASCII char can be display by 2 hexa chars
-				textAsHexa += " ";
+		}
+		return convertSymbolInNibble(symbol);
+	}
+
+	private int convertSymbolInNibble(int symbol) {
+		int nibble = DECODETABLE[symbol];
+		if (nibble == CONTROLSYMBOL) {
+			// control functions are only valid as delimiters, not as data
+			throw new DecodeException("Control function within data!!!");
+		} else if (nibble == INVALIDSYMBOL) {
+			// throw Exception if 4B5B code does not match a valid value or function
+			throw new DecodeException("Undefined 4B5B Code");
+		}
+		return nibble;
+	}
+
+	@Override
+	public ByteBuffer encodeBinary(byte[] data) {
+		// call of capsuled operation function
+		return ByteBuffer.wrap(this.encodeBinaryOperation(data, 0, data.length));
+	}
+
+	@Override
+	public ByteBuffer encodeBinary(byte[] data, int offset, int length) {
+		// call of capsuled operation function
+		return ByteBuffer.wrap(this.encodeBinaryOperation(data, offset, length));
+	}
+
+	private byte[] encodeBinaryOperation(byte[] data, int offset, int length) {
+		// size the output once: start condition, ten bits per byte, end condition,
+		// rounded up to full bytes
+		int bitCount = 2 * BYTEBITS + length * BYTEBITS;
+		byte[] packed4B5B = new byte[(bitCount + 7) / 8];
+		// collects the symbol bits until at least one full byte can be written
+		int bitBuffer = STARTBITS;
+		int bufferedBits = BYTEBITS;
+		int position = 0;
+		for (int i = offset; i <= offset + length; i++) {
+			// the end condition follows behind the last byte of data
+			int symbols = (i < offset + length) ? ENCODEBITSTABLE[data[i] & 0xff] : ENDBITS;
+			bitBuffer = bitBuffer << BYTEBITS | symbols;
+			bufferedBits += BYTEBITS;
+			while (bufferedBits >= 8) {
+				bufferedBits -= 8;
+				packed4B5B[position++] = (byte) (bitBuffer >>> bufferedBits);
 			}
 		}
-		return textAsHexa;
+		if (bufferedBits > 0) {
+			// pad the last byte with zero bits
+			packed4B5B[position] = (byte) (bitBuffer << (8 - bufferedBits));
+		}
+		return packed4B5B;
+	}
+
+	@Override
+	public byte[] decodeBinary(ByteBuffer data) throws DecodeException {
+		return this.decodeBinaryOperation(data); // call of capsuled operation function
+	}
+
+	private byte[] decodeBinaryOperation(ByteBuffer data) {
+		byte[] textContent = new byte[this.checkDelimiters(data)];
+		convertSymbolsInBytes(data, data.position(), textContent, 0, textContent.length);
+		return textContent;
+	}
+
+	/**
+	 * a 4B5B code holds at most four data bits per five bits of line code
+	 */
+	@Override
+	public int getMaxDecodedLength(ByteBuffer data) {
+		return data.remaining() * 8 / BYTEBITS;
+	}
+
+	@Override
+	public int decodeBinary(ByteBuffer data, byte[] target, int offset) throws DecodeException {
+		int length = this.checkDelimiters(data);
+		convertSymbolsInBytes(data, data.position(), target, offset, length);
+		return length;
+	}
+
+	private int checkDelimiters(ByteBuffer data) {
+		int offset = data.position();
+		int symbolCount = data.remaining() * 8 / SYMBOLLENGTH;
+		if (symbolCount % 2 != 0) {
+			// a single symbol of padding bits is the quiet function and no data
+			if (readSymbol(data, offset, symbolCount - 1) != 0) {
+				throw new DecodeException("Wrong data size!!!");
+			}
+			symbolCount--;
+		}
+		// check if input starts with starting condition
+		if (symbolCount >= 2 && readSymbolPair(data, offset, 0) == STARTBITS) {
+			// check if input ends with ending condition behind the start condition
+			if (symbolCount >= 4 && readSymbolPair(data, offset, symbolCount - 2) == ENDBITS) {
+				return (symbolCount - 4) / 2;
+			} else { // end condition missing
+				throw new DecodeException("EndDelimiter missing!!!");
+			}
+		} else { // start condition missing
+			throw new DecodeException("StartDelimiter missing!!!");
+		}
+	}
+
+	@Override
+	public byte[] decodeBinaryHeader(ByteBuffer data, int length) throws DecodeException {
+		int offset = data.position();
+		int symbolCount = data.remaining() * 8 / SYMBOLLENGTH;
+		// check if input starts with starting condition
+		if (symbolCount >= 2 && readSymbolPair(data, offset, 0) == STARTBITS) {
+			// decode the requested bytes behind the start condition, as far as available
+			int availableBytes = Math.max(0, (symbolCount - 4) / 2);
+			byte[] header = new byte[Math.min(length, availableBytes)];
+			convertSymbolsInBytes(data, offset, header, 0, header.length);
+			return header;
+		} else { // start condition missing
+			throw new DecodeException("StartDelimiter missing!!!");
+		}
+	}
+
+	private void convertSymbolsInBytes(ByteBuffer packed4B5B, int offset, byte[] textContent, int textOffset,
+			int length) {
+		for (int i = 0; i < length; i++) {
+			// combine the nibbles of two symbols into one byte, the first two symbols are
+			// the start condition
+			int highNibble = convertSymbolInNibble(readSymbol(packed4B5B, offset, 2 * i + 2));
+			int lowNibble = convertSymbolInNibble(readSymbol(packed4B5B, offset, 2 * i + 3));
+			textContent[textOffset + i] = (byte) (highNibble << 4 | lowNibble);
+		}
+	}
+
+	private int readSymbolPair(ByteBuffer packed4B5B, int offset, int symbolIndex) {
+		return readSymbol(packed4B5B, offset, symbolIndex) << SYMBOLLENGTH
+				| readSymbol(packed4B5B, offset, symbolIndex + 1);
+	}
+
+	private int readSymbol(ByteBuffer packed4B5B, int offset, int symbolIndex) {
+		// a symbol spans at most two bytes, read both and cut the 5 bits out of them
+		int bitIndex = symbolIndex * SYMBOLLENGTH;
+		int byteIndex = offset + bitIndex / 8;
+		int twoBytes = (packed4B5B.get(byteIndex) & 0xff) << 8;
+		if (byteIndex + 1 < packed4B5B.limit()) {
+			twoBytes |= packed4B5B.get(byteIndex + 1) & 0xff;
+		}
+		return twoBytes >>> (16 - SYMBOLLENGTH - bitIndex % 8) & 0x1f;
+	}
+
+	@Override
+	public long encodeStream(ReadableByteChannel source, WritableByteChannel sink) throws IOException {
+		ByteBuffer input = ByteBuffer.allocate(CHUNKSIZE);
+		// ten bits per byte of a full input chunk plus the delimiters and the padding
+		ByteBuffer output = ByteBuffer.allocate(CHUNKSIZE * BYTEBITS / 8 + 4);
+		// the bits that do not fill a full byte are kept for the next chunk
+		int bitBuffer = STARTBITS;
+		int bufferedBits = BYTEBITS;
+		long dataSize = 0;
+		while (source.read(input) != -1) {
+			input.flip();
+			dataSize += input.remaining();
+			while (input.hasRemaining()) {
+				bitBuffer = bitBuffer << BYTEBITS | ENCODEBITSTABLE[input.get() & 0xff];
+				bufferedBits += BYTEBITS;
+				while (bufferedBits >= 8) {
+					bufferedBits -= 8;
+					output.put((byte) (bitBuffer >>> bufferedBits));
+				}
+			}
+			input.clear();
+			writeChunk(output, sink);
+		}
+		// append end condition and pad the last byte with zero bits
+		bitBuffer = bitBuffer << BYTEBITS | ENDBITS;
+		bufferedBits += BYTEBITS;
+		while (bufferedBits >= 8) {
+			bufferedBits -= 8;
+			output.put((byte) (bitBuffer >>> bufferedBits));
+		}
+		if (bufferedBits > 0) {
+			output.put((byte) (bitBuffer << (8 - bufferedBits)));
+		}
+		writeChunk(output, sink);
+		return dataSize;
+	}
+
+	@Override
+	public long decodeStream(ReadableByteChannel source, WritableByteChannel sink) throws IOException, DecodeException {
+		ByteBuffer input = ByteBuffer.allocate(CHUNKSIZE);
+		ByteBuffer output = ByteBuffer.allocate(CHUNKSIZE);
+		// the symbols expected next: start condition, data, end condition, padding
+		final int expectJ = 0, expectK = 1, expectData = 2, expectR = 3, expectQuiet = 4;
+		int stage = expectJ;
+		// the bits that do not fill a full symbol and a decoded high nibble are kept
+		// for the next chunk
+		int bitBuffer = 0;
+		int bufferedBits = 0;
+		int highNibble = -1;
+		long dataSize = 0;
+		while (source.read(input) != -1) {
+			input.flip();
+			while (input.hasRemaining()) {
+				bitBuffer = bitBuffer << 8 | (input.get() & 0xff);
+				bufferedBits += 8;
+				while (bufferedBits >= SYMBOLLENGTH) {
+					bufferedBits -= SYMBOLLENGTH;
+					int symbol = bitBuffer >>> bufferedBits & 0x1f;
+					if (stage == expectData) {
+						if (symbol == ENDBITS >>> SYMBOLLENGTH) {
+							if (highNibble != -1) { // a single nibble is no valid byte
+								throw new DecodeException("Wrong data size!!!");
+							}
+							stage = expectR;
+						} else if (highNibble == -1) {
+							highNibble = convertSymbolInNibble(symbol);
+						} else {
+							// combine the nibbles of two symbols into one byte
+							output.put((byte) (highNibble << 4 | convertSymbolInNibble(symbol)));
+							highNibble = -1;
+							dataSize++;
+							if (!output.hasRemaining()) {
+								writeChunk(output, sink);
+							}
+						}
+					} else if (stage == expectJ && symbol == STARTBITS >>> SYMBOLLENGTH) {
+						stage = expectK;
+					} else if (stage == expectK && symbol == (STARTBITS & 0x1f)) {
+						stage = expectData;
+					} else if (stage == expectR && symbol == (ENDBITS & 0x1f)) {
+						stage = expectQuiet;
+					} else if (stage == expectQuiet && symbol == 0) {
+						// padding bits behind the end condition read as quiet function
+					} else if (stage < expectData) { // start condition missing
+						throw new DecodeException("StartDelimiter missing!!!");
+					} else if (stage == expectR) { // end condition incomplete
+						throw new DecodeException("EndDelimiter missing!!!");
+					} else { // data behind the end condition
+						throw new DecodeException("Wrong data size!!!");
+					}
+				}
+			}
+			input.clear();
+		}
+		if (stage < expectData) { // start condition missing
+			throw new DecodeException("StartDelimiter missing!!!");
+		} else if (stage < expectQuiet) { // end condition missing
+			throw new DecodeException("EndDelimiter missing!!!");
+		}
+		writeChunk(output, sink);
+		return dataSize;
+	}
+
+	private void writeChunk(ByteBuffer chunk, WritableByteChannel sink) throws IOException {
+		chunk.flip();
+		while (chunk.hasRemaining()) {
+			sink.write(chunk);
+		}
+		chunk.clear();
 	}
 
 }
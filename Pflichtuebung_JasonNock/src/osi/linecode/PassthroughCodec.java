@@ -0,0 +1,127 @@
+package osi.linecode;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import osi.exception.DecodeException;
+
+/**
+ * <p>
+ * This codec passes the data through without any line coding.<br>
+ * It is used when sender and receivers live in the same process and the frames
+ * never leave the memory (loopback). As String every byte is represented by
+ * one char in the range of U+0100 to U+01FF, so the String of a frame never
+ * contains a line break and frames can still be joined line by line. The binary
+ * line code is the frame itself: encoding a whole array wraps it without
+ * copying it and decoding hands out the wrapped array again, if the buffer
+ * covers the whole array. A section of an array is copied, because the layers
+ * reuse the array of a frame once it is encoded. All layers above still process their
+ * protocol control information as usual.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class PassthroughCodec implements Codec, BinaryCodec {
+
+	final static int CHAROFFSET = 0x100;
+
+	/**
+	 * represents the data as String with one char per byte
+	 */
+	@Override
+	public String encode(byte[] data) {
+		return encode(data, 0, data.length);
+	}
+
+	/**
+	 * represents a section of an array as String with one char per byte
+	 */
+	@Override
+	public String encode(byte[] data, int offset, int length) {
+		char[] encoded = new char[length];
+		for (int i = 0; i < length; i++) {
+			encoded[i] = (char) (CHAROFFSET | data[offset + i] & 0xff);
+		}
+		return new String(encoded);
+	}
+
+	/**
+	 * converts the chars of the String back into bytes
+	 * 
+	 * @throws DecodeException if a char does not represent a byte
+	 */
+	@Override
+	public byte[] decode(String data) throws DecodeException {
+		return decodeHeader(data, data.length());
+	}
+
+	/**
+	 * converts only the first chars of the String back into bytes
+	 * 
+	 * @throws DecodeException if a char does not represent a byte
+	 */
+	@Override
+	public byte[] decodeHeader(String data, int length) throws DecodeException {
+		byte[] decoded = new byte[Math.min(length, data.length())];
+		for (int i = 0; i < decoded.length; i++) {
+			int symbol = data.charAt(i) - CHAROFFSET;
+			if (symbol < 0 || symbol > 0xff) {
+				throw new DecodeException("Invalid symbol!!!");
+			}
+			decoded[i] = (byte) symbol;
+		}
+		return decoded;
+	}
+
+	/**
+	 * wraps the data without copying it
+	 */
+	@Override
+	public ByteBuffer encodeBinary(byte[] data) {
+		return ByteBuffer.wrap(data);
+	}
+
+	/**
+	 * copies a section of an array, because the array may be reused by the caller
+	 */
+	@Override
+	public ByteBuffer encodeBinary(byte[] data, int offset, int length) {
+		return ByteBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length));
+	}
+
+	/**
+	 * hands out the remaining bytes of the buffer.<br>
+	 * If the buffer wraps a whole array, the array is returned without copying
+	 * it, else the remaining bytes are copied.
+	 */
+	@Override
+	public byte[] decodeBinary(ByteBuffer data) {
+		if (data.hasArray() && data.arrayOffset() + data.position() == 0
+				&& data.remaining() == data.array().length) {
+			return data.array();
+		}
+		byte[] decoded = new byte[data.remaining()];
+		data.duplicate().get(decoded);
+		return decoded;
+	}
+
+	/**
+	 * copies the remaining bytes of the buffer into the given array
+	 */
+	@Override
+	public int decodeBinary(ByteBuffer data, byte[] target, int offset) {
+		int length = data.remaining();
+		data.duplicate().get(target, offset, length);
+		return length;
+	}
+
+	/**
+	 * copies only the first remaining bytes of the buffer
+	 */
+	@Override
+	public byte[] decodeBinaryHeader(ByteBuffer data, int length) {
+		byte[] decoded = new byte[Math.min(length, data.remaining())];
+		data.duplicate().get(decoded);
+		return decoded;
+	}
+}
@@ -0,0 +1,43 @@
+package osi.linecode;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import osi.exception.DecodeException;
+
+/**
+ * <p>
+ * A stream codec translates data of any size with constant memory.<br>
+ * The data is read from a channel in chunks of fixed size and the converted
+ * data is written to another channel chunk by chunk. The whole content of the
+ * source channel is converted as one bit-packed line code, so it starts and
+ * ends with the delimiters of the codec.
+ */
+public interface StreamCodec {
+
+	/**
+	 * converts all data of the source channel by a set of specific rules and
+	 * writes it bit-packed into the sink channel
+	 * 
+	 * @param source channel holding the data to be converted
+	 * @param sink   channel the converted data gets written into
+	 * @return <code>long</code> number of data bytes that got converted
+	 * @throws IOException - error that is thrown if a channel can not be read or
+	 *                     written
+	 */
+	long encodeStream(ReadableByteChannel source, WritableByteChannel sink) throws IOException;
+
+	/**
+	 * decodes a bit-packed stream of encoded data of the source channel and
+	 * writes the decoded data into the sink channel
+	 * 
+	 * @param source channel holding the data to be decoded
+	 * @param sink   channel the decoded data gets written into
+	 * @return <code>long</code> number of data bytes that got decoded
+	 * @throws IOException     - error that is thrown if a channel can not be read
+	 *                         or written
+	 * @throws DecodeException - error that is thrown if data can not be decoded
+	 */
+	long decodeStream(ReadableByteChannel source, WritableByteChannel sink) throws IOException, DecodeException;
+}
@@ -0,0 +1,327 @@
+package osi.linecode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import osi.exception.DecodeException;
+
+/**
+ * <p>
+ * This class processes data to transmit it 64 bits at once.<br>
+ * It produces exactly the same line code as {@link Codec4B5B}, but the bulk of
+ * a frame is processed in 64 bit words instead of single symbols. <br>
+ * When encoding the String line code, the ten symbol chars of a byte are
+ * written as one word of eight chars and two further chars. When decoding it,
+ * eight chars are read as one word, checked to be '0' or '1' at once and
+ * gathered into eight bits by a single multiplication. Five words hold the
+ * symbols of four bytes. <br>
+ * When encoding the bit-packed line code, the symbols of five bytes fill 50
+ * bits of a word, which is written at once. When decoding it, a word is read
+ * at the bit position of the next symbol and five bytes are cut out of it. Two
+ * symbols are looked up as a whole in a table holding the byte of every 10 bit
+ * value. <br>
+ * The bytes at the end of a frame, which do not fill a word, are processed one
+ * by one. If a frame is not valid line code, it is decoded once more by the
+ * scalar code of the superclass, which reports the exact error. The header and
+ * stream methods are inherited unchanged.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class WordCodec4B5B extends Codec4B5B {
+
+	/**
+	 * number of bytes of a word
+	 */
+	final static int WORDBYTES = 8;
+
+	/**
+	 * number of bytes, whose symbols are packed into one word at once
+	 */
+	final static int BYTESPERWORD = 5;
+
+	/**
+	 * number of bytes, whose symbol chars are read as five words at once
+	 */
+	final static int BYTESPERCHARWORDS = 4;
+
+	/**
+	 * selects the lowest bit of every char of a word
+	 */
+	final static long CHARBITS = 0x0101010101010101L;
+
+	/**
+	 * a word of eight '0' chars, every char '0' or '1' equals it without its
+	 * lowest bit
+	 */
+	final static long ZEROCHARS = 0x3030303030303030L;
+
+	/**
+	 * moves the lowest bit of every char of a word into the highest byte, the
+	 * first char becomes the highest bit
+	 */
+	final static long GATHERBITS = 0x0102040810204080L;
+
+	/**
+	 * marks a 10 bit value in the pair table as no data byte
+	 */
+	final static short NODATABYTE = -1;
+
+	/**
+	 * holds the first eight symbol chars of every possible byte value as word
+	 */
+	private static final long[] ENCODEWORDTABLE = new long[256];
+
+	/**
+	 * holds the last two symbol chars of every possible byte value
+	 */
+	private static final short[] ENCODETAILTABLE = new short[256];
+
+	/**
+	 * maps every 10 bit value of two symbols to its byte or marks it as no data
+	 */
+	private static final short[] PAIRTABLE = new short[1 << BYTEBITS];
+
+	private static final byte[] STARTCHARS = STARTDELIMITER.getBytes(StandardCharsets.ISO_8859_1);
+
+	private static final byte[] ENDCHARS = ENDDELIMITER.getBytes(StandardCharsets.ISO_8859_1);
+
+	static {
+		ByteBuffer symbolChars = ByteBuffer.allocate(BYTELENGTH);
+		Arrays.fill(PAIRTABLE, NODATABYTE);
+		for (int value = 0; value < 256; value++) {
+			// the symbols of a byte are the ten lowest bits of its table entry
+			int symbols = ENCODEBITSTABLE[value];
+			for (int i = 0; i < BYTELENGTH; i++) {
+				symbolChars.put(i, (byte) ('0' + (symbols >>> (BYTEBITS - 1 - i) & 1)));
+			}
+			ENCODEWORDTABLE[value] = symbolChars.getLong(0);
+			ENCODETAILTABLE[value] = symbolChars.getShort(WORDBYTES);
+			PAIRTABLE[symbols] = (short) value;
+		}
+	}
+
+	@Override
+	public String encode(byte[] data) {
+		return this.encodeWordOperation(data, 0, data.length); // call of capsuled operation function
+	}
+
+	@Override
+	public String encode(byte[] data, int offset, int length) {
+		return this.encodeWordOperation(data, offset, length); // call of capsuled operation function
+	}
+
+	private String encodeWordOperation(byte[] data, int offset, int length) {
+		// the chars of the line code are written as single bytes and turned into a
+		// String with a single copy
+		byte[] coded4B5B = new byte[2 * DELIMITERLENGTH + length * BYTELENGTH];
+		ByteBuffer words = ByteBuffer.wrap(coded4B5B);
+		System.arraycopy(STARTCHARS, 0, coded4B5B, 0, DELIMITERLENGTH); // append start condition
+		int position = DELIMITERLENGTH;
+		for (int i = offset; i < offset + length; i++) {
+			int value = data[i] & 0xff;
+			words.putLong(position, ENCODEWORDTABLE[value]);
+			words.putShort(position + WORDBYTES, ENCODETAILTABLE[value]);
+			position += BYTELENGTH;
+		}
+		System.arraycopy(ENDCHARS, 0, coded4B5B, position, DELIMITERLENGTH); // append end condition
+		return new String(coded4B5B, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public byte[] decode(String data) throws DecodeException {
+		byte[] textContent = this.decodeWordOperation(data);
+		// invalid line code is decoded by the scalar code, which reports the error
+		return (textContent != null) ? textContent : super.decode(data);
+	}
+
+	private byte[] decodeWordOperation(String data) {
+		int payloadLength = data.length() - 2 * DELIMITERLENGTH;
+		if (payloadLength < 0 || payloadLength % BYTELENGTH != 0 || !data.startsWith(STARTDELIMITER)
+				|| !data.endsWith(ENDDELIMITER)) {
+			return null;
+		}
+		// chars beyond a single byte turn into '?' and fail the check below
+		byte[] encoded4B5B = data.getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer words = ByteBuffer.wrap(encoded4B5B);
+		byte[] textContent = new byte[payloadLength / BYTELENGTH];
+		int position = DELIMITERLENGTH;
+		int i = 0;
+		for (; i + BYTESPERCHARWORDS <= textContent.length; i += BYTESPERCHARWORDS) {
+			// gather the 40 symbol chars of four bytes into a 40 bit value
+			long symbols = 0;
+			for (int word = 0; word < BYTESPERCHARWORDS * BYTELENGTH / WORDBYTES; word++) {
+				long chars = words.getLong(position);
+				if ((chars & ~CHARBITS) != ZEROCHARS) {
+					return null;
+				}
+				symbols = symbols << 8 | (chars & CHARBITS) * GATHERBITS >>> 56;
+				position += WORDBYTES;
+			}
+			for (int pair = 0; pair < BYTESPERCHARWORDS; pair++) {
+				int shift = (BYTESPERCHARWORDS - 1 - pair) * BYTEBITS;
+				int value = PAIRTABLE[(int) (symbols >>> shift) & 0x3ff];
+				if (value == NODATABYTE) {
+					return null;
+				}
+				textContent[i + pair] = (byte) value;
+			}
+		}
+		for (; i < textContent.length; i++) {
+			// the last bytes are read char by char
+			int symbols = 0;
+			for (int indexCounter = 0; indexCounter < BYTELENGTH; indexCounter++) {
+				int bit = encoded4B5B[position + indexCounter] - '0';
+				if ((bit & ~1) != 0) {
+					return null;
+				}
+				symbols = symbols << 1 | bit;
+			}
+			int value = PAIRTABLE[symbols];
+			if (value == NODATABYTE) {
+				return null;
+			}
+			textContent[i] = (byte) value;
+			position += BYTELENGTH;
+		}
+		return textContent;
+	}
+
+	@Override
+	public ByteBuffer encodeBinary(byte[] data) {
+		// call of capsuled operation function
+		return ByteBuffer.wrap(this.encodeBinaryWordOperation(data, 0, data.length));
+	}
+
+	@Override
+	public ByteBuffer encodeBinary(byte[] data, int offset, int length) {
+		// call of capsuled operation function
+		return ByteBuffer.wrap(this.encodeBinaryWordOperation(data, offset, length));
+	}
+
+	private byte[] encodeBinaryWordOperation(byte[] data, int offset, int length) {
+		int bitCount = 2 * BYTEBITS + length * BYTEBITS;
+		byte[] packed4B5B = new byte[(bitCount + 7) / 8];
+		ByteBuffer words = ByteBuffer.wrap(packed4B5B);
+		// holds the start condition and later at most seven bits, which do not fill a
+		// full byte yet
+		long bitBuffer = STARTBITS;
+		int bufferedBits = BYTEBITS;
+		int position = 0;
+		int i = offset;
+		// a word is only written if all of its bytes are within the output
+		while (i + BYTESPERWORD <= offset + length && position + WORDBYTES <= packed4B5B.length) {
+			for (int pair = 0; pair < BYTESPERWORD; pair++) {
+				bitBuffer = bitBuffer << BYTEBITS | ENCODEBITSTABLE[data[i + pair] & 0xff];
+			}
+			bufferedBits += BYTESPERWORD * BYTEBITS;
+			// the bytes behind the full ones are overwritten by the next word
+			words.putLong(position, bitBuffer << (Long.SIZE - bufferedBits));
+			position += bufferedBits / 8;
+			bufferedBits %= 8;
+			bitBuffer &= (1L << bufferedBits) - 1;
+			i += BYTESPERWORD;
+		}
+		for (; i <= offset + length; i++) {
+			// the end condition follows behind the last byte of data
+			int symbols = (i < offset + length) ? ENCODEBITSTABLE[data[i] & 0xff] : ENDBITS;
+			bitBuffer = bitBuffer << BYTEBITS | symbols;
+			bufferedBits += BYTEBITS;
+			while (bufferedBits >= 8) {
+				bufferedBits -= 8;
+				packed4B5B[position++] = (byte) (bitBuffer >>> bufferedBits);
+			}
+		}
+		if (bufferedBits > 0) {
+			// pad the last byte with zero bits
+			packed4B5B[position] = (byte) (bitBuffer << (8 - bufferedBits));
+		}
+		return packed4B5B;
+	}
+
+	@Override
+	public byte[] decodeBinary(ByteBuffer data) throws DecodeException {
+		int length = this.countDataBytes(data);
+		if (length >= 0) {
+			byte[] textContent = new byte[length];
+			if (this.decodeBinaryWordOperation(data, textContent, 0, length)) {
+				return textContent;
+			}
+		}
+		// invalid line code is decoded by the scalar code, which reports the error
+		return super.decodeBinary(data);
+	}
+
+	@Override
+	public int decodeBinary(ByteBuffer data, byte[] target, int offset) throws DecodeException {
+		int length = this.countDataBytes(data);
+		if (length >= 0 && this.decodeBinaryWordOperation(data, target, offset, length)) {
+			return length;
+		}
+		return super.decodeBinary(data, target, offset);
+	}
+
+	private int countDataBytes(ByteBuffer data) {
+		int offset = data.position();
+		int symbolCount = data.remaining() * 8 / SYMBOLLENGTH;
+		if (symbolCount % 2 != 0) {
+			// a single symbol of padding bits has to be the quiet function
+			if (readBits(data, offset, (symbolCount - 1) * SYMBOLLENGTH, SYMBOLLENGTH) != 0) {
+				return -1;
+			}
+			symbolCount--;
+		}
+		if (symbolCount < 4 || readBits(data, offset, 0, BYTEBITS) != STARTBITS
+				|| readBits(data, offset, (symbolCount - 2) * SYMBOLLENGTH, BYTEBITS) != ENDBITS) {
+			return -1;
+		}
+		return (symbolCount - 4) / 2;
+	}
+
+	private boolean decodeBinaryWordOperation(ByteBuffer data, byte[] textContent, int textOffset, int length) {
+		int offset = data.position();
+		// the words are read big endian, whatever byte order the caller has chosen
+		ByteBuffer words = (data.order() == ByteOrder.BIG_ENDIAN) ? data
+				: data.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int bitIndex = BYTEBITS;
+		int i = 0;
+		for (; i + BYTESPERWORD <= length
+				&& offset + bitIndex / 8 + WORDBYTES <= data.limit(); i += BYTESPERWORD) {
+			// the symbols of five bytes start within the first byte of the word
+			long symbols = words.getLong(offset + bitIndex / 8) << (bitIndex % 8);
+			for (int pair = 0; pair < BYTESPERWORD; pair++) {
+				int value = PAIRTABLE[(int) (symbols >>> (Long.SIZE - (pair + 1) * BYTEBITS)) & 0x3ff];
+				if (value == NODATABYTE) {
+					return false;
+				}
+				textContent[textOffset + i + pair] = (byte) value;
+			}
+			bitIndex += BYTESPERWORD * BYTEBITS;
+		}
+		for (; i < length; i++) {
+			int value = PAIRTABLE[readBits(data, offset, bitIndex, BYTEBITS)];
+			if (value == NODATABYTE) {
+				return false;
+			}
+			textContent[textOffset + i] = (byte) value;
+			bitIndex += BYTEBITS;
+		}
+		return true;
+	}
+
+	private int readBits(ByteBuffer packed4B5B, int offset, int bitIndex, int bitCount) {
+		// up to ten bits span at most three bytes, read them and cut the bits out
+		int byteIndex = offset + bitIndex / 8;
+		int threeBytes = 0;
+		for (int i = 0; i < 3; i++) {
+			threeBytes <<= 8;
+			if (byteIndex + i < packed4B5B.limit()) {
+				threeBytes |= packed4B5B.get(byteIndex + i) & 0xff;
+			}
+		}
+		return threeBytes >>> (24 - bitCount - bitIndex % 8) & ((1 << bitCount) - 1);
+	}
+
+}
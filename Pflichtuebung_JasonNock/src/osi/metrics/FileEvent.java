@@ -0,0 +1,68 @@
+package osi.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>
+ * Flight recorder event of a received file being written.<br>
+ * If the fragments are written straight into the file, the event spans the
+ * whole transfer from opening the file up to closing it.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+@Name("osi.File")
+@Label("Received File")
+@Category({ "OSI", "Transfers" })
+@Description("A received file written by a receiver")
+public class FileEvent extends Event {
+
+	/**
+	 * outcome of a file, which was written completely
+	 */
+	public final static String WRITTEN = "written";
+
+	/**
+	 * outcome of a file, whose transfer was discarded
+	 */
+	public final static String ABORTED = "aborted";
+
+	@Label("File Name")
+	private String fileName;
+
+	@Label("File Size")
+	@DataAmount
+	private long fileSize;
+
+	@Label("Outcome")
+	private String outcome;
+
+	/**
+	 * generates an event, which is started at once if it is enabled
+	 *
+	 * @param fileName name of the written file
+	 * @param fileSize number of bytes of the file
+	 */
+	public FileEvent(String fileName, long fileSize) {
+		this.fileName = fileName;
+		this.fileSize = fileSize;
+		this.begin();
+	}
+
+	/**
+	 * ends the event and commits it, if it passes the settings of the recording
+	 *
+	 * @param outcome what happened to the file
+	 */
+	public void finish(String outcome) {
+		if (this.shouldCommit()) {
+			this.outcome = outcome;
+			this.commit();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package osi.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>
+ * Flight recorder event of the fragmentation of a transfer.<br>
+ * The event starts when the application layer splits the data into fragments
+ * and ends when the stream of frames is closed, so it spans the requests of all
+ * fragments of the transfer.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+@Name("osi.Fragmentation")
+@Label("Fragmentation")
+@Category({ "OSI", "Transfers" })
+@Description("The data of a transfer split into fragments and sent as frames")
+public class FragmentationEvent extends Event {
+
+	@Label("Transfer Id")
+	private int transferId;
+
+	@Label("Total Size")
+	@DataAmount
+	private long totalSize;
+
+	@Label("Fragment Size")
+	@DataAmount
+	private int fragmentSize;
+
+	@Label("Fragment Count")
+	private int fragmentCount;
+
+	@Label("Parallel")
+	private boolean parallel;
+
+	/**
+	 * generates an event, which is started at once if it is enabled
+	 *
+	 * @param transferId    identifier of the transfer
+	 * @param totalSize     number of bytes of the whole transfer
+	 * @param fragmentSize  maximal number of bytes of a fragment
+	 * @param fragmentCount number of fragments
+	 * @param parallel      <code>true</code> if the fragments are sent in
+	 *                      parallel
+	 */
+	public FragmentationEvent(int transferId, long totalSize, int fragmentSize, int fragmentCount,
+			boolean parallel) {
+		this.transferId = transferId;
+		this.totalSize = totalSize;
+		this.fragmentSize = fragmentSize;
+		this.fragmentCount = fragmentCount;
+		this.parallel = parallel;
+		this.begin();
+	}
+}
@@ -0,0 +1,180 @@
+package osi.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>
+ * Flight recorder event of a frame processed by a primitive of a layer.<br>
+ * Every layer records an event when it adds its PCI to a frame or checks the
+ * PCI of a received frame, the physical layer when it encodes or decodes a
+ * frame. The event carries the size of the frame, the transfer identifier and
+ * sequence number of the fragment, the addresses of the PCI of the layer and
+ * the outcome. As long as the event is not enabled in a recording, the event
+ * object is not filled and the addresses are not formatted.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+@Name("osi.Frame")
+@Label("Frame")
+@Category({ "OSI", "Frames" })
+@Description("A frame processed by a primitive of a layer")
+@StackTrace(false)
+public class FrameEvent extends Event {
+
+	/**
+	 * primitive of a layer adding its PCI to a frame
+	 */
+	public final static String REQUEST = "req";
+
+	/**
+	 * primitive of a layer checking the PCI of a received frame
+	 */
+	public final static String INDICATION = "ind";
+
+	/**
+	 * primitive of the physical layer encoding a frame
+	 */
+	public final static String TRANSMIT = "transmit";
+
+	/**
+	 * primitive of the physical layer decoding a frame
+	 */
+	public final static String RECEIVE = "receive";
+
+	/**
+	 * outcome of a frame handed to the lower layer
+	 */
+	public final static String SENT = "sent";
+
+	/**
+	 * outcome of a frame handed to the upper layer
+	 */
+	public final static String DELIVERED = "delivered";
+
+	/**
+	 * outcome of a fragment, which completed its transfer
+	 */
+	public final static String COMPLETED = "completed";
+
+	/**
+	 * outcome of a frame, which was not intended for the layer
+	 */
+	public final static String FILTERED = "filtered";
+
+	/**
+	 * outcome of a frame, which could not be decoded
+	 */
+	public final static String DECODEERROR = "decode error";
+
+	@Label("Layer")
+	private String layer;
+
+	@Label("Primitive")
+	private String primitive;
+
+	@Label("Frame Size")
+	@DataAmount
+	private int frameSize;
+
+	@Label("Transfer Id")
+	private int transferId = -1;
+
+	@Label("Sequence Number")
+	private int sequenceNumber = -1;
+
+	@Label("Source Address")
+	private String sourceAddress;
+
+	@Label("Destination Address")
+	private String destinationAddress;
+
+	@Label("Outcome")
+	private String outcome;
+
+	/**
+	 * generates an event, which is started at once if it is enabled
+	 *
+	 * @param layer     name of the layer
+	 * @param primitive primitive processing the frame
+	 */
+	public FrameEvent(String layer, String primitive) {
+		if (this.isEnabled()) {
+			this.layer = layer;
+			this.primitive = primitive;
+			this.begin();
+		}
+	}
+
+	/**
+	 * sets the size of the frame
+	 *
+	 * @param frameSize number of bytes of the frame
+	 */
+	public void setFrameSize(int frameSize) {
+		this.frameSize = frameSize;
+	}
+
+	/**
+	 * sets the fragment the frame carries
+	 *
+	 * @param transferId     identifier of the transfer
+	 * @param sequenceNumber sequence number of the fragment
+	 */
+	public void setFragment(int transferId, int sequenceNumber) {
+		this.transferId = transferId;
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	/**
+	 * ends the event and commits it, if it passes the settings of the recording
+	 *
+	 * @param outcome what happened to the frame
+	 */
+	public void finish(String outcome) {
+		if (this.shouldCommit()) {
+			this.outcome = outcome;
+			this.commit();
+		}
+	}
+
+	/**
+	 * ends the event with the addresses read from the PCI and commits it
+	 *
+	 * @param outcome          what happened to the frame
+	 * @param pci              buffer holding the PCI
+	 * @param sourceIndex      index of the source address in the buffer
+	 * @param destinationIndex index of the destination address in the buffer
+	 * @param addressBytes     number of bytes of an address
+	 */
+	public void finish(String outcome, byte[] pci, int sourceIndex, int destinationIndex, int addressBytes) {
+		if (this.shouldCommit()) {
+			this.sourceAddress = format(pci, sourceIndex, addressBytes);
+			this.destinationAddress = format(pci, destinationIndex, addressBytes);
+			this.finish(outcome);
+		}
+	}
+
+	private static String format(byte[] buffer, int index, int length) {
+		if (index < 0 || index + length > buffer.length) {
+			// the frame is too short to hold the address
+			return null;
+		}
+		// the address is written as hexadecimal bytes separated by colons
+		StringBuilder address = new StringBuilder(3 * length);
+		for (int i = index; i < index + length; i++) {
+			if (i > index) {
+				address.append(':');
+			}
+			address.append(Character.forDigit((buffer[i] >>> 4) & 0x0f, 16));
+			address.append(Character.forDigit(buffer[i] & 0x0f, 16));
+		}
+		return address.toString();
+	}
+}
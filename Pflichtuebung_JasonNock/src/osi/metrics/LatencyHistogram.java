@@ -0,0 +1,116 @@
+package osi.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Counts durations in buckets of powers of two nanoseconds.<br>
+ * Bucket b holds the durations from 2^(b-1) up to 2^b - 1 nanoseconds, bucket
+ * 0 holds the durations of 0 nanoseconds and the last bucket all longer
+ * durations. Recording a duration adds to two
+ * {@link java.util.concurrent.atomic.LongAdder}s and takes no lock, the
+ * percentiles are estimated by the upper bound of their bucket.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class LatencyHistogram {
+
+	/**
+	 * number of buckets, the last one starts at about 275 seconds
+	 */
+	final static int BUCKETS = 40;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder totalNanos = new LongAdder();
+
+	/**
+	 * generates an empty histogram
+	 */
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * counts a duration
+	 *
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		buckets[Math.min(Long.SIZE - Long.numberOfLeadingZeros(nanos), BUCKETS - 1)].increment();
+		totalNanos.add(nanos);
+	}
+
+	/**
+	 * determines the number of counted durations
+	 *
+	 * @return number of durations
+	 */
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * determines the mean of all counted durations
+	 *
+	 * @return mean duration in nanoseconds or 0 if nothing was counted
+	 */
+	public double getMeanNanos() {
+		long count = this.getCount();
+		return (count == 0) ? 0 : (double) totalNanos.sum() / count;
+	}
+
+	/**
+	 * estimates a percentile of the counted durations
+	 *
+	 * @param percentile between 0 and 100
+	 * @return upper bound in nanoseconds of the bucket holding the percentile or
+	 *         0 if nothing was counted
+	 */
+	public long getPercentileNanos(double percentile) {
+		long[] counts = this.getBuckets();
+		long count = 0;
+		for (long bucketCount : counts) {
+			count += bucketCount;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << i) - 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * grants access to a snapshot of the buckets
+	 *
+	 * @return number of durations of every bucket
+	 */
+	public long[] getBuckets() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return counts;
+	}
+
+	/**
+	 * forgets all counted durations
+	 */
+	public void reset() {
+		for (LongAdder bucket : buckets) {
+			bucket.reset();
+		}
+		totalNanos.reset();
+	}
+}
@@ -0,0 +1,219 @@
+package osi.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Counts the frames passing all instances of a layer.<br>
+ * All instances of a layer class share the same metrics, which are registered
+ * as MBean named after the layer class when they are used first. The counting
+ * methods return at once, if the instrumentation is switched off by
+ * {@link Metrics#setEnabled(boolean)}.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class LayerMetrics implements LayerMetricsMBean {
+
+	/**
+	 * MBean type of the metrics of a layer
+	 */
+	final static String TYPE = "Layer";
+
+	// stores the metrics of every layer class by its name
+	private static final ConcurrentHashMap<String, LayerMetrics> LAYERS = new ConcurrentHashMap<String, LayerMetrics>();
+
+	private final LongAdder framesSent = new LongAdder();
+	private final LongAdder bytesSent = new LongAdder();
+	private final LongAdder framesReceived = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+	private final LongAdder framesDropped = new LongAdder();
+	private final LongAdder decodeErrors = new LongAdder();
+	private final LatencyHistogram requestLatency = new LatencyHistogram();
+	private final LatencyHistogram indicationLatency = new LatencyHistogram();
+
+	private LayerMetrics() {
+	}
+
+	/**
+	 * grants access to the metrics of a layer.<br>
+	 * The metrics are created and registered as MBean on the first access.
+	 *
+	 * @param layerName name of the layer class
+	 * @return the metrics shared by all instances of the layer
+	 */
+	public static LayerMetrics forLayer(String layerName) {
+		return LAYERS.computeIfAbsent(layerName, name -> {
+			LayerMetrics metrics = new LayerMetrics();
+			Metrics.register(TYPE, name, metrics);
+			return metrics;
+		});
+	}
+
+	/**
+	 * counts a frame this layer added its PCI to
+	 *
+	 * @param bytes number of bytes of the service data unit
+	 */
+	public void countSent(int bytes) {
+		if (Metrics.isEnabled()) {
+			framesSent.increment();
+			bytesSent.add(bytes);
+		}
+	}
+
+	/**
+	 * counts a frame this layer checked on receiving
+	 *
+	 * @param bytes number of bytes of the frame
+	 */
+	public void countReceived(int bytes) {
+		if (Metrics.isEnabled()) {
+			framesReceived.increment();
+			bytesReceived.add(bytes);
+		}
+	}
+
+	/**
+	 * counts a received frame, which was not intended for this layer
+	 */
+	public void countDropped() {
+		if (Metrics.isEnabled()) {
+			framesDropped.increment();
+		}
+	}
+
+	/**
+	 * counts a frame, which could not be decoded
+	 */
+	public void countDecodeError() {
+		if (Metrics.isEnabled()) {
+			decodeErrors.increment();
+		}
+	}
+
+	/**
+	 * counts the latency of a request
+	 *
+	 * @param startTime the time returned by {@link Metrics#startTime()} when the
+	 *                  request started
+	 */
+	public void recordRequest(long startTime) {
+		if (startTime != 0 && Metrics.isEnabled()) {
+			requestLatency.record(System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * counts the latency of an indication
+	 *
+	 * @param startTime the time returned by {@link Metrics#startTime()} when the
+	 *                  indication started
+	 */
+	public void recordIndication(long startTime) {
+		if (startTime != 0 && Metrics.isEnabled()) {
+			indicationLatency.record(System.nanoTime() - startTime);
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return Metrics.isEnabled();
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		Metrics.setEnabled(enabled);
+	}
+
+	@Override
+	public long getFramesSent() {
+		return framesSent.sum();
+	}
+
+	@Override
+	public long getBytesSent() {
+		return bytesSent.sum();
+	}
+
+	@Override
+	public long getFramesReceived() {
+		return framesReceived.sum();
+	}
+
+	@Override
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	@Override
+	public long getFramesDropped() {
+		return framesDropped.sum();
+	}
+
+	@Override
+	public long getDecodeErrors() {
+		return decodeErrors.sum();
+	}
+
+	@Override
+	public long getRequestCount() {
+		return requestLatency.getCount();
+	}
+
+	@Override
+	public double getRequestMeanNanos() {
+		return requestLatency.getMeanNanos();
+	}
+
+	@Override
+	public long getRequestP50Nanos() {
+		return requestLatency.getPercentileNanos(50);
+	}
+
+	@Override
+	public long getRequestP99Nanos() {
+		return requestLatency.getPercentileNanos(99);
+	}
+
+	@Override
+	public long[] getRequestHistogram() {
+		return requestLatency.getBuckets();
+	}
+
+	@Override
+	public long getIndicationCount() {
+		return indicationLatency.getCount();
+	}
+
+	@Override
+	public double getIndicationMeanNanos() {
+		return indicationLatency.getMeanNanos();
+	}
+
+	@Override
+	public long getIndicationP50Nanos() {
+		return indicationLatency.getPercentileNanos(50);
+	}
+
+	@Override
+	public long getIndicationP99Nanos() {
+		return indicationLatency.getPercentileNanos(99);
+	}
+
+	@Override
+	public long[] getIndicationHistogram() {
+		return indicationLatency.getBuckets();
+	}
+
+	@Override
+	public void reset() {
+		for (LongAdder counter : new LongAdder[] { framesSent, bytesSent, framesReceived, bytesReceived,
+				framesDropped, decodeErrors }) {
+			counter.reset();
+		}
+		requestLatency.reset();
+		indicationLatency.reset();
+	}
+}
@@ -0,0 +1,111 @@
+package osi.metrics;
+
+/**
+ * Management interface of the metrics of a layer.<br>
+ * The latencies of requests and indications include the time spent in the
+ * layers the request or indication is passed to.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public interface LayerMetricsMBean {
+
+	/**
+	 * @return <code>true</code> if the instrumentation of all layers is switched
+	 *         on
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @param enabled <code>true</code> to switch the instrumentation of all layers
+	 *                on
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * @return number of frames this layer added its PCI to
+	 */
+	long getFramesSent();
+
+	/**
+	 * @return number of bytes of the service data units of the sent frames
+	 */
+	long getBytesSent();
+
+	/**
+	 * @return number of frames this layer checked on receiving
+	 */
+	long getFramesReceived();
+
+	/**
+	 * @return number of bytes of the received frames
+	 */
+	long getBytesReceived();
+
+	/**
+	 * @return number of received frames, which were not intended for this layer
+	 */
+	long getFramesDropped();
+
+	/**
+	 * @return number of frames, which could not be decoded
+	 */
+	long getDecodeErrors();
+
+	/**
+	 * @return number of sampled requests
+	 */
+	long getRequestCount();
+
+	/**
+	 * @return mean latency of the requests in nanoseconds
+	 */
+	double getRequestMeanNanos();
+
+	/**
+	 * @return estimated median latency of the requests in nanoseconds
+	 */
+	long getRequestP50Nanos();
+
+	/**
+	 * @return estimated 99th percentile of the latency of the requests in
+	 *         nanoseconds
+	 */
+	long getRequestP99Nanos();
+
+	/**
+	 * @return number of requests in every bucket of the latency histogram
+	 */
+	long[] getRequestHistogram();
+
+	/**
+	 * @return number of sampled indications
+	 */
+	long getIndicationCount();
+
+	/**
+	 * @return mean latency of the indications in nanoseconds
+	 */
+	double getIndicationMeanNanos();
+
+	/**
+	 * @return estimated median latency of the indications in nanoseconds
+	 */
+	long getIndicationP50Nanos();
+
+	/**
+	 * @return estimated 99th percentile of the latency of the indications in
+	 *         nanoseconds
+	 */
+	long getIndicationP99Nanos();
+
+	/**
+	 * @return number of indications in every bucket of the latency histogram
+	 */
+	long[] getIndicationHistogram();
+
+	/**
+	 * sets all counters and histograms of this layer back to 0
+	 */
+	void reset();
+}
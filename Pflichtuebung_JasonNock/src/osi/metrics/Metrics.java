@@ -0,0 +1,101 @@
+package osi.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * Switches the instrumentation of all layers on or off.<br>
+ * The instrumentation is switched off unless the system property
+ * {@value #ENABLEDPROPERTY} is set to true. It can be switched at any time,
+ * also by the Enabled attribute of every layer MBean. While it is switched
+ * off, a counted event costs a single read of a volatile flag. While it is
+ * switched on, a counted event adds to a
+ * {@link java.util.concurrent.atomic.LongAdder}, which does not contend between
+ * threads. Reading the clock costs far more than counting, so only a random
+ * sample of one in {@value #SAMPLINGINTERVAL} requests and indications is
+ * timed. The sample still gives the mean and the percentiles of the latency.
+ * <br>
+ * All metrics are registered as MBeans in the domain {@value #DOMAIN} of the
+ * platform MBean server.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public final class Metrics {
+
+	/**
+	 * system property, which switches the instrumentation on at startup
+	 */
+	public final static String ENABLEDPROPERTY = "osi.metrics";
+
+	/**
+	 * domain of the names of all MBeans
+	 */
+	public final static String DOMAIN = "osi.metrics";
+
+	/**
+	 * on average one in this number of events is timed, has to be a power of two
+	 */
+	public final static int SAMPLINGINTERVAL = 64;
+
+	private static volatile boolean enabled = Boolean.getBoolean(ENABLEDPROPERTY);
+
+	private Metrics() {
+	}
+
+	/**
+	 * determines if the instrumentation is switched on
+	 *
+	 * @return <code>true</code> if events are counted
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * switches the instrumentation on or off
+	 *
+	 * @param enabled <code>true</code> to count events
+	 */
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * reads the clock at the start of an event, if the event is sampled
+	 *
+	 * @return the current time in nanoseconds or 0 if the event is not timed
+	 */
+	public static long startTime() {
+		if (enabled && (ThreadLocalRandom.current().nextInt() & (SAMPLINGINTERVAL - 1)) == 0) {
+			return System.nanoTime();
+		}
+		return 0;
+	}
+
+	/**
+	 * registers an MBean in the platform MBean server.<br>
+	 * An MBean registered earlier under the same name is replaced.
+	 *
+	 * @param type  type of the metrics, e.g. Layer or Receiver
+	 * @param name  name of the layer or receiver
+	 * @param mbean the metrics to register
+	 */
+	static void register(String type, String name, Object mbean) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(mbean, objectName);
+		} catch (JMException e) {
+			throw new IllegalStateException("Registration of metrics failed!!!", e);
+		}
+	}
+}
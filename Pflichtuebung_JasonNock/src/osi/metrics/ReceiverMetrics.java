@@ -0,0 +1,61 @@
+package osi.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Counts the frames and bytes a single receiver gets from the medium.<br>
+ * Every physical layer holds its own receiver metrics. They are registered as
+ * MBean under the name of the receiver by {@link #register(String)}.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class ReceiverMetrics implements ReceiverMetricsMBean {
+
+	/**
+	 * MBean type of the metrics of a receiver
+	 */
+	final static String TYPE = "Receiver";
+
+	private final LongAdder framesReceived = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+
+	/**
+	 * registers the metrics as MBean.<br>
+	 * The metrics of an earlier receiver with the same name are replaced.
+	 *
+	 * @param receiverName name of the receiver
+	 */
+	public void register(String receiverName) {
+		Metrics.register(TYPE, receiverName, this);
+	}
+
+	/**
+	 * counts a frame handed to the layers of the receiver
+	 *
+	 * @param bytes number of bytes of the decoded frame
+	 */
+	public void countReceived(int bytes) {
+		if (Metrics.isEnabled()) {
+			framesReceived.increment();
+			bytesReceived.add(bytes);
+		}
+	}
+
+	@Override
+	public long getFramesReceived() {
+		return framesReceived.sum();
+	}
+
+	@Override
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	@Override
+	public void reset() {
+		framesReceived.reset();
+		bytesReceived.reset();
+	}
+}
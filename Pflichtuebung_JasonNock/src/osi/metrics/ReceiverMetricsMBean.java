@@ -0,0 +1,25 @@
+package osi.metrics;
+
+/**
+ * Management interface of the metrics of a single receiver.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public interface ReceiverMetricsMBean {
+
+	/**
+	 * @return number of frames handed to the layers of the receiver
+	 */
+	long getFramesReceived();
+
+	/**
+	 * @return number of bytes of the frames handed to the layers of the receiver
+	 */
+	long getBytesReceived();
+
+	/**
+	 * sets the counters of the receiver back to 0
+	 */
+	void reset();
+}
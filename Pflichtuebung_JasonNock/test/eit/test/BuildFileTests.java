@@ -0,0 +1,120 @@
+package eit.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import osi.layer.CreateInstances;
+import osi.layer.application.BuildFile;
+import osi.layer.application.DataTransfer;
+import osi.layer.physical.PHY;
+
+/**
+ * <p>
+ * Tests the file builder of a receiver, which takes the fragments of every
+ * transfer into a file of its own.<br>
+ * The files are written into a temporary folder, which is deleted after every
+ * test.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class BuildFileTests {
+
+	final static int TRANSFERSIZE = 20000;
+
+	private BuildFileTests() {
+	}
+
+	/**
+	 * runs all tests of the file builder
+	 */
+	static void run() {
+		Test.run("interleaved transfers are written into files of their own", BuildFileTests::interleavedTransfers);
+		Test.run("file of a discarded transfer is taken again", BuildFileTests::discardedTransferFreesFile);
+	}
+
+	private static void interleavedTransfers() throws IOException {
+		Path folder = Files.createTempDirectory("buildfile");
+		try {
+			byte[] firstData = randomData(TRANSFERSIZE);
+			byte[] secondData = randomData(TRANSFERSIZE + 1);
+			List<ByteBuffer> firstFrames = send("AAAAAA", firstData);
+			List<ByteBuffer> secondFrames = send("DDDDDD", secondData);
+			BuildFile builder = newReceiver(folder);
+			PHY receiver = builder.getReceiverAccess().keySet().iterator().next();
+			// the first frame of the first transfer arrives first, so it takes the file
+			// named after the receiver
+			for (int i = 0; i < Math.max(firstFrames.size(), secondFrames.size()); i++) {
+				if (i < firstFrames.size()) {
+					receiver.receive(firstFrames.get(i));
+				}
+				if (i < secondFrames.size()) {
+					receiver.receive(secondFrames.get(i));
+				}
+			}
+			Test.check(firstFrames.size() > 1, "first transfer was not fragmented");
+			Test.checkEquals(0, builder.getApplicationLayer().getSessionCount(), "incomplete sessions");
+			Test.checkEquals(firstData, Files.readAllBytes(folder.resolve("rx.gif")), "file of the first transfer");
+			Test.checkEquals(secondData, Files.readAllBytes(folder.resolve("rx-2.gif")),
+					"file of the second transfer");
+		} finally {
+			delete(folder);
+		}
+	}
+
+	private static void discardedTransferFreesFile() throws IOException, InterruptedException {
+		Path folder = Files.createTempDirectory("buildfile");
+		try {
+			byte[] lostData = randomData(TRANSFERSIZE);
+			byte[] data = randomData(TRANSFERSIZE + 1);
+			List<ByteBuffer> lostFrames = send("AAAAAA", lostData);
+			List<ByteBuffer> frames = send("DDDDDD", data);
+			BuildFile builder = newReceiver(folder);
+			DataTransfer applicationLayer = builder.getApplicationLayer();
+			PHY receiver = builder.getReceiverAccess().keySet().iterator().next();
+			applicationLayer.setSessionTimeout(50);
+			// the last frame of the first transfer is lost
+			for (ByteBuffer frame : lostFrames.subList(0, lostFrames.size() - 1)) {
+				receiver.receive(frame);
+			}
+			Thread.sleep(100);
+			frames.forEach(receiver::receive);
+			Test.checkEquals(0, applicationLayer.getSessionCount(), "incomplete sessions");
+			Test.checkEquals(data, Files.readAllBytes(folder.resolve("rx.gif")), "file of the second transfer");
+			Test.check(!Files.exists(folder.resolve("rx-2.gif")), "file of the discarded transfer was kept open");
+		} finally {
+			delete(folder);
+		}
+	}
+
+	private static BuildFile newReceiver(Path folder) {
+		return new CreateInstances()
+				.createReceiverInstance(new String[] { folder.resolve("rx").toString(), "BBBBBB", "3333", "44" });
+	}
+
+	private static List<ByteBuffer> send(String dataLinkAddress, byte[] data) {
+		DataTransfer sender = new CreateInstances()
+				.createSenderInstance(new String[] { dataLinkAddress, "1111", "22" });
+		return sender.sendDataBinary(data, "44".getBytes(), "3333".getBytes(), "BBBBBB".getBytes());
+	}
+
+	private static byte[] randomData(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	private static void delete(Path folder) throws IOException {
+		try (Stream<Path> files = Files.list(folder)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(folder);
+	}
+}
@@ -0,0 +1,151 @@
+package eit.test;
+
+import osi.layer.FrameBuffer;
+import osi.layer.FramePool;
+
+/**
+ * <p>
+ * Tests the frame pool and the leak detection of pooled frame buffers.<br>
+ * The pool is shared by the whole process, so the tests only check the
+ * counters of the pool by their differences.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class FramePoolTests {
+
+	final static long LEAKTIMEOUTMILLIS = 10_000;
+
+	private FramePoolTests() {
+	}
+
+	/**
+	 * runs all tests of the frame pool
+	 */
+	static void run() {
+		FramePool.setEnabled(true);
+		Test.run("pool hands out arrays of a pooled length", FramePoolTests::acquireRoundsUp);
+		Test.run("pool does not keep too large arrays", FramePoolTests::largeArraysAreNotPooled);
+		Test.run("pool reuses a released array on the same thread", FramePoolTests::reuseFromSameStripe);
+		Test.run("pool returns the arrays of a batch like a stack", FramePoolTests::reuseBatch);
+		Test.run("frame buffer round trip through the pool", FramePoolTests::frameBufferRoundTrip);
+		Test.run("frame buffer released twice", FramePoolTests::doubleRelease);
+		Test.run("leak detection reports an unreleased frame buffer", FramePoolTests::leakIsReported);
+		Test.run("leak detection ignores released frame buffers", FramePoolTests::releasedFrameIsNoLeak);
+	}
+
+	private static void acquireRoundsUp() {
+		byte[] small = FramePool.acquire(1);
+		byte[] odd = FramePool.acquire(1000);
+		Test.checkEquals(FramePool.MINLENGTH, small.length, "length of the smallest array");
+		Test.checkEquals(1024, odd.length, "length rounded up to a power of two");
+		FramePool.release(small);
+		FramePool.release(odd);
+	}
+
+	private static void largeArraysAreNotPooled() {
+		long allocated = FramePool.getAllocatedCount();
+		byte[] large = FramePool.acquire(FramePool.MAXLENGTH + 1);
+		Test.checkEquals(FramePool.MAXLENGTH + 1, large.length, "length of a large array");
+		Test.checkEquals(allocated, FramePool.getAllocatedCount(), "pool allocations");
+		FramePool.release(large);
+		Test.check(FramePool.acquire(FramePool.MAXLENGTH + 1) != large, "large array was pooled");
+	}
+
+	private static void reuseFromSameStripe() {
+		byte[] array = FramePool.acquire(300);
+		long reused = FramePool.getReusedCount();
+		FramePool.release(array);
+		Test.check(FramePool.acquire(300) == array, "released array was not handed out again");
+		Test.checkEquals(reused + 1, FramePool.getReusedCount(), "reused arrays");
+	}
+
+	private static void reuseBatch() {
+		byte[][] batch = new byte[FramePool.STRIPES / 2][];
+		for (int i = 0; i < batch.length; i++) {
+			batch[i] = FramePool.acquire(2000);
+		}
+		for (byte[] array : batch) {
+			FramePool.release(array);
+		}
+		long allocated = FramePool.getAllocatedCount();
+		// the last array put back is the first one taken
+		for (int i = batch.length - 1; i >= 0; i--) {
+			Test.check(FramePool.acquire(2000) == batch[i], "array " + i + " was not reused in stack order");
+		}
+		Test.checkEquals(allocated, FramePool.getAllocatedCount(), "pool allocations");
+		for (byte[] array : batch) {
+			FramePool.release(array);
+		}
+	}
+
+	private static void frameBufferRoundTrip() {
+		byte[] dataUnit = { 1, 2, 3, 4, 5 };
+		FrameBuffer frame = FrameBuffer.acquireCopyOf(42, dataUnit);
+		byte[] array = frame.getBuffer();
+		Test.checkEquals(dataUnit, frame.toByteArray(), "data unit");
+		Test.checkEquals(42, frame.getOffset(), "headroom");
+		frame.release();
+		Test.check(frame.getBuffer() == null, "released frame buffer still holds its array");
+		FrameBuffer next = FrameBuffer.acquire(42, dataUnit.length);
+		Test.check(next.getBuffer() == array, "array of the frame buffer was not reused");
+		next.release();
+	}
+
+	private static void doubleRelease() {
+		FrameBuffer frame = FrameBuffer.acquire(0, 100);
+		frame.release();
+		Test.checkThrows(IllegalStateException.class, frame::release);
+	}
+
+	private static void leakIsReported() throws InterruptedException {
+		FramePool.setLeakDetection(true);
+		try {
+			long leaks = FramePool.getLeakCount();
+			acquireAndForget();
+			long deadline = System.currentTimeMillis() + LEAKTIMEOUTMILLIS;
+			// the cleaner reports the leak once the frame buffer is collected
+			while (FramePool.getLeakCount() == leaks && System.currentTimeMillis() < deadline) {
+				System.gc();
+				Thread.sleep(10);
+			}
+			Test.checkEquals(leaks + 1, FramePool.getLeakCount(), "leaked frame buffers");
+			Test.check(FramePool.getLastLeak() != null, "place of the leak is not reported");
+			Test.check(stackContains(FramePool.getLastLeak(), "acquireAndForget"),
+					"reported place is not the acquisition");
+		} finally {
+			FramePool.setLeakDetection(false);
+		}
+	}
+
+	private static void acquireAndForget() {
+		FrameBuffer.acquire(0, 100);
+	}
+
+	private static boolean stackContains(Throwable leak, String methodName) {
+		for (StackTraceElement element : leak.getStackTrace()) {
+			if (element.getMethodName().equals(methodName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void releasedFrameIsNoLeak() throws InterruptedException {
+		FramePool.setLeakDetection(true);
+		try {
+			long leaks = FramePool.getLeakCount();
+			long outstanding = FramePool.getOutstandingCount();
+			FrameBuffer frame = FrameBuffer.acquire(0, 100);
+			Test.checkEquals(outstanding + 1, FramePool.getOutstandingCount(), "watched frame buffers");
+			frame.release();
+			frame = null;
+			System.gc();
+			Thread.sleep(50);
+			Test.checkEquals(outstanding, FramePool.getOutstandingCount(), "watched frame buffers");
+			Test.checkEquals(leaks, FramePool.getLeakCount(), "leaked frame buffers");
+		} finally {
+			FramePool.setLeakDetection(false);
+		}
+	}
+}
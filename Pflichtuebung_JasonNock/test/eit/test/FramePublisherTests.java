@@ -0,0 +1,249 @@
+package eit.test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import osi.layer.CreateInstances;
+import osi.layer.Layer;
+import osi.layer.application.DataTransfer;
+import osi.layer.application.FramePublisher;
+import osi.layer.datalink.DataLink;
+import osi.layer.network.Network;
+import osi.layer.physical.PHY;
+import osi.layer.transport.Transport;
+import osi.linecode.Codec4B5B;
+import osi.metrics.LayerMetrics;
+import osi.metrics.Metrics;
+
+/**
+ * <p>
+ * Tests the frame publisher and the physical layer as its subscriber.<br>
+ * The receivers are built without a file, so the data of a complete transfer
+ * is kept by their application layers. A transfer which does not
+ * complete within {@value #TIMEOUTSECONDS} seconds counts as stalled.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class FramePublisherTests {
+
+	final static long TIMEOUTSECONDS = 10;
+	final static int TRANSFERSIZE = 20000;
+	// number of frames the parallel sender fragments and encodes together
+	final static int BATCHFRAMES = 64;
+
+	private FramePublisherTests() {
+	}
+
+	/**
+	 * runs all tests of the frame publisher
+	 */
+	static void run() {
+		Test.run("publisher completes all receivers", FramePublisherTests::transferCompletes);
+		Test.run("subscriber cancels while subscribing", FramePublisherTests::cancelInOnSubscribe);
+		Test.run("subscriber requests no frames", FramePublisherTests::requestZero);
+		Test.run("receiver subscribes to overlapping publishers", FramePublisherTests::overlappingPublishers);
+		Test.run("receiver drops frames it can not decode", FramePublisherTests::decodeErrorKeepsRequesting);
+		Test.run("publisher produces frames only with demand", FramePublisherTests::noFramesWithoutDemand);
+	}
+
+	private static void transferCompletes() throws Exception {
+		byte[] data = randomData(TRANSFERSIZE);
+		PHY first = newReceiver();
+		PHY second = newReceiver();
+		FramePublisher publisher = publish(data);
+		publisher.subscribe(first);
+		publisher.subscribe(second);
+		await(publisher.connect());
+		Test.checkEquals(data, receivedData(first), "data of the first receiver");
+		Test.checkEquals(data, receivedData(second), "data of the second receiver");
+	}
+
+	private static void cancelInOnSubscribe() throws Exception {
+		byte[] data = randomData(TRANSFERSIZE);
+		PHY receiver = newReceiver();
+		FramePublisher publisher = publish(data);
+		publisher.subscribe(receiver);
+		RecordingSubscriber cancelling = new RecordingSubscriber(true);
+		publisher.subscribe(cancelling);
+		await(publisher.connect());
+		Test.checkEquals(data, receivedData(receiver), "data of the receiver");
+		Test.checkEquals(0L, cancelling.frames.get(), "frames of the cancelled subscriber");
+	}
+
+	private static void requestZero() throws Exception {
+		byte[] data = randomData(TRANSFERSIZE);
+		PHY receiver = newReceiver();
+		FramePublisher publisher = publish(data);
+		publisher.subscribe(receiver);
+		RecordingSubscriber requestingNothing = new RecordingSubscriber(false);
+		publisher.subscribe(requestingNothing);
+		await(publisher.connect());
+		Test.checkEquals(data, receivedData(receiver), "data of the receiver");
+		Test.check(requestingNothing.error.get() instanceof IllegalArgumentException,
+				"subscriber got " + requestingNothing.error.get() + " instead of an IllegalArgumentException");
+		Test.checkEquals(0L, requestingNothing.frames.get(), "frames of the failed subscriber");
+	}
+
+	private static void overlappingPublishers() throws Exception {
+		byte[] firstData = randomData(TRANSFERSIZE);
+		byte[] secondData = randomData(TRANSFERSIZE + 1);
+		PHY shared = newReceiver();
+		PHY other = newReceiver();
+		FramePublisher firstPublisher = publish(firstData);
+		FramePublisher secondPublisher = publish(secondData);
+		firstPublisher.subscribe(shared);
+		// the shared receiver cancels the second subscription at once
+		secondPublisher.subscribe(shared);
+		secondPublisher.subscribe(other);
+		CompletableFuture<Void> secondTransfer = secondPublisher.connect();
+		await(firstPublisher.connect());
+		await(secondTransfer);
+		Test.checkEquals(firstData, receivedData(shared), "data of the shared receiver");
+		Test.checkEquals(secondData, receivedData(other), "data of the other receiver");
+	}
+
+	private static void decodeErrorKeepsRequesting() {
+		PHY receiver = newReceiver();
+		AtomicLong requested = new AtomicLong();
+		receiver.onSubscribe(new Flow.Subscription() {
+
+			@Override
+			public void request(long n) {
+				requested.addAndGet(n);
+			}
+
+			@Override
+			public void cancel() {
+				throw new AssertionError("subscription was cancelled");
+			}
+		});
+		// 00000 is no symbol of the 4B5B code
+		for (int i = 0; i < PHY.SUBSCRIBERWINDOW; i++) {
+			receiver.onNext(ByteBuffer.allocate(64));
+		}
+		Test.checkEquals(2L * PHY.SUBSCRIBERWINDOW, requested.get(), "requested frames");
+		Test.check(receiver.getDecodedPackage() == null, "frame which can not be decoded was received");
+		Test.check(receiver.getReceiveFailure() == null, "decode error ended the subscription");
+	}
+
+	private static void noFramesWithoutDemand() throws Exception {
+		boolean metricsEnabled = Metrics.isEnabled();
+		Metrics.setEnabled(true);
+		try {
+			LayerMetrics senderMetrics = LayerMetrics.forLayer(PHY.class.getSimpleName());
+			long framesSent = senderMetrics.getFramesSent();
+			FramePublisher publisher = publish(randomData(10 * TRANSFERSIZE));
+			CountDownLatch received = new CountDownLatch(BATCHFRAMES);
+			AtomicReference<Flow.Subscription> subscription = new AtomicReference<Flow.Subscription>();
+			publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+
+				@Override
+				public void onSubscribe(Flow.Subscription newSubscription) {
+					subscription.set(newSubscription);
+					newSubscription.request(BATCHFRAMES);
+				}
+
+				@Override
+				public void onNext(ByteBuffer frame) {
+					received.countDown();
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+				}
+
+				@Override
+				public void onComplete() {
+				}
+			});
+			CompletableFuture<Void> transfer = publisher.connect();
+			Test.check(received.await(TIMEOUTSECONDS, TimeUnit.SECONDS), "requested frames were not delivered");
+			// give the publisher the chance to run ahead
+			Thread.sleep(50);
+			Test.checkEquals((long) BATCHFRAMES, senderMetrics.getFramesSent() - framesSent, "produced frames");
+			Test.check(!transfer.isDone(), "transfer completed without demand");
+			subscription.get().request(Long.MAX_VALUE);
+			await(transfer);
+		} finally {
+			Metrics.setEnabled(metricsEnabled);
+		}
+	}
+
+	private static PHY newReceiver() {
+		PHY physicalLayer = new PHY(new Codec4B5B());
+		new DataTransfer(new Transport("44".getBytes(),
+				new Network("3333".getBytes(), new DataLink("BBBBBB".getBytes(), physicalLayer))));
+		return physicalLayer;
+	}
+
+	private static byte[] receivedData(PHY receiver) {
+		Layer applicationLayer = receiver;
+		while (applicationLayer.getUpperLayer() != null) {
+			applicationLayer = applicationLayer.getUpperLayer();
+		}
+		return ((DataTransfer) applicationLayer).getRecvData();
+	}
+
+	private static FramePublisher publish(byte[] data) {
+		DataTransfer sender = new CreateInstances().createSenderInstance(new String[] { "AAAAAA", "1111", "22" });
+		return sender.publishData(ByteBuffer.wrap(data), "44".getBytes(), "3333".getBytes(), "BBBBBB".getBytes());
+	}
+
+	private static byte[] randomData(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	private static void await(CompletableFuture<Void> transfer) throws Exception {
+		transfer.get(TIMEOUTSECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * a subscriber which gives up while subscribing and records what it got
+	 */
+	private static class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+		private final boolean cancelling;
+		private final AtomicLong frames = new AtomicLong();
+		private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+		/**
+		 * @param cancelling <code>true</code> to cancel the subscription,
+		 *                   <code>false</code> to request no frames
+		 */
+		private RecordingSubscriber(boolean cancelling) {
+			this.cancelling = cancelling;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			if (cancelling) {
+				subscription.cancel();
+			} else {
+				subscription.request(0);
+			}
+		}
+
+		@Override
+		public void onNext(ByteBuffer frame) {
+			frames.incrementAndGet();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error.set(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+		}
+	}
+}
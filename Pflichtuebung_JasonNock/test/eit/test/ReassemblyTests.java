@@ -0,0 +1,97 @@
+package eit.test;
+
+import java.util.Random;
+
+import osi.layer.application.DataTransfer;
+
+/**
+ * <p>
+ * Tests the reassembly of the received fragments of a transfer.<br>
+ * The fragments are handed to an application layer without lower layers, so
+ * they are built with their fragment header only. The transfer of
+ * {@value #TRANSFERSIZE} bytes is cut into fragments of
+ * {@value #FRAGMENTSIZE} bytes like by the sender: the fragment with the
+ * sequence number 0 holds the remaining bytes at offset 0, the others follow
+ * it.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class ReassemblyTests {
+
+	final static int TRANSFERSIZE = 3500;
+	final static int FRAGMENTSIZE = 1000;
+	final static int TRANSFERID = 7;
+
+	private ReassemblyTests() {
+	}
+
+	/**
+	 * runs all tests of the reassembly
+	 */
+	static void run() {
+		Test.run("fragments in any order complete the transfer", ReassemblyTests::fragmentsInAnyOrder);
+		Test.run("rejected fragment does not fix the layout", ReassemblyTests::rejectedFragmentKeepsLayoutOpen);
+		Test.run("rejected fragment keeps the first fragment", ReassemblyTests::rejectedFragmentKeepsFirstFragment);
+	}
+
+	private static void fragmentsInAnyOrder() {
+		byte[] data = randomData();
+		DataTransfer receiver = new DataTransfer(null);
+		int fragments = TRANSFERSIZE / FRAGMENTSIZE + 1;
+		for (int seqNo = fragments - 1; seqNo > 0; seqNo--) {
+			Test.check(receiver.ind(fragment(data, seqNo)) == null, "transfer completed early");
+		}
+		Test.check(receiver.ind(fragment(data, 0)) != null, "transfer was not completed");
+		Test.checkEquals(data, receiver.getRecvData(), "reassembled data");
+	}
+
+	private static void rejectedFragmentKeepsLayoutOpen() {
+		byte[] data = randomData();
+		DataTransfer receiver = new DataTransfer(null);
+		// the offset does not fit the layout of fragments of 700 bytes
+		Test.check(receiver.ind(fragment(TRANSFERID, 5, 123, new byte[700])) == null, "wrong fragment completed");
+		Test.checkEquals(1, receiver.getSessionCount(), "sessions");
+		Test.check(receiver.ind(fragment(data, 0)) == null, "transfer completed early");
+		Test.check(receiver.ind(fragment(data, 1)) == null, "transfer completed early");
+		Test.check(receiver.ind(fragment(data, 2)) == null, "transfer completed early");
+		Test.check(receiver.ind(fragment(data, 3)) != null, "transfer was not completed");
+		Test.checkEquals(data, receiver.getRecvData(), "reassembled data");
+		Test.checkEquals(0, receiver.getSessionCount(), "sessions");
+	}
+
+	private static void rejectedFragmentKeepsFirstFragment() {
+		byte[] data = randomData();
+		DataTransfer receiver = new DataTransfer(null);
+		receiver.ind(fragment(data, 0));
+		// the fragment size of 700 bytes would not fit the first fragment
+		receiver.ind(fragment(TRANSFERID, 5, 123, new byte[700]));
+		receiver.ind(fragment(data, 1));
+		receiver.ind(fragment(data, 2));
+		Test.check(receiver.ind(fragment(data, 3)) != null, "first fragment was discarded");
+		Test.checkEquals(data, receiver.getRecvData(), "reassembled data");
+	}
+
+	private static byte[] fragment(byte[] data, int seqNo) {
+		int firstLength = TRANSFERSIZE % FRAGMENTSIZE;
+		int offset = (seqNo == 0) ? 0 : (seqNo - 1) * FRAGMENTSIZE + firstLength;
+		int length = (seqNo == 0) ? firstLength : FRAGMENTSIZE;
+		byte[] payload = new byte[length];
+		System.arraycopy(data, offset, payload, 0, length);
+		return fragment(TRANSFERID, seqNo, offset, payload);
+	}
+
+	private static byte[] fragment(int transferId, int seqNo, int offset, byte[] payload) {
+		byte[] header = DataTransfer.createFragmentHeader(transferId, seqNo, offset, TRANSFERSIZE);
+		byte[] serviceDataUnit = new byte[header.length + payload.length];
+		System.arraycopy(header, 0, serviceDataUnit, 0, header.length);
+		System.arraycopy(payload, 0, serviceDataUnit, header.length, payload.length);
+		return serviceDataUnit;
+	}
+
+	private static byte[] randomData() {
+		byte[] data = new byte[TRANSFERSIZE];
+		new Random(TRANSFERSIZE).nextBytes(data);
+		return data;
+	}
+}
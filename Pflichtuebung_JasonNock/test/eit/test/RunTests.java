@@ -0,0 +1,49 @@
+package eit.test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Runs the tests of the OSI stack and prints their results.<br>
+ * The tests are selected by the command line arguments <code>pool</code>,
+ * <code>reassembly</code>, <code>publisher</code> and <code>file</code>.
+ * Without arguments all tests are run. The program exits with status 1 if a
+ * test failed. The sources of the folder <code>test</code> are compiled
+ * together with the sources of the folder <code>src</code>, e.g.
+ * 
+ * <pre>
+ * javac -d bin $(find src test -name '*.java')
+ * java -p bin -m Pflichtuebung1_JasonNock/eit.test.RunTests
+ * </pre>
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+public class RunTests {
+
+	/**
+	 * runs the selected tests
+	 * 
+	 * @param args contain the names of the tests to run
+	 */
+	public static void main(String[] args) {
+		List<String> selection = Arrays.asList(args);
+		if (selection.isEmpty() || selection.contains("pool")) {
+			FramePoolTests.run();
+		}
+		if (selection.isEmpty() || selection.contains("reassembly")) {
+			ReassemblyTests.run();
+		}
+		if (selection.isEmpty() || selection.contains("publisher")) {
+			FramePublisherTests.run();
+		}
+		if (selection.isEmpty() || selection.contains("file")) {
+			BuildFileTests.run();
+		}
+		System.out.println(Test.getPassedCount() + " passed, " + Test.getFailedCount() + " failed");
+		if (Test.getFailedCount() > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package eit.test;
+
+import java.util.Objects;
+
+/**
+ * <p>
+ * This class runs the tests of the OSI stack and counts the failed ones.<br>
+ * A test is a piece of code, which throws an {@link AssertionError} or any
+ * other exception if it fails. Every test is reported with its name, a failed
+ * test with the reason of its failure, and the remaining tests are run anyway.
+ *
+ * @author Jason Nock
+ * @version 2.8
+ */
+class Test {
+
+	private static int passed;
+	private static int failed;
+
+	private Test() {
+	}
+
+	/**
+	 * a test, which may throw any exception
+	 */
+	interface Body {
+
+		/**
+		 * runs the test
+		 *
+		 * @throws Exception if the test fails
+		 */
+		void run() throws Exception;
+	}
+
+	/**
+	 * runs a test and prints its result
+	 *
+	 * @param name identifies the test in the output
+	 * @param test the test to be run
+	 */
+	static void run(String name, Body test) {
+		try {
+			test.run();
+			passed++;
+			System.out.println("PASS " + name);
+		} catch (Throwable e) {
+			failed++;
+			System.out.println("FAIL " + name + ": " + e);
+			e.printStackTrace(System.out);
+		}
+	}
+
+	/**
+	 * fails the test if the condition is not fulfilled
+	 *
+	 * @param condition has to be <code>true</code>
+	 * @param message   describes the failure
+	 */
+	static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	/**
+	 * fails the test if the values are not equal
+	 *
+	 * @param expected the expected value
+	 * @param actual   the value to be checked
+	 * @param message  describes the checked value
+	 */
+	static void checkEquals(Object expected, Object actual, String message) {
+		if (!Objects.deepEquals(expected, actual)) {
+			throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * fails the test if the code does not throw an exception of the given type
+	 *
+	 * @param type the expected type of exception
+	 * @param code the code, which has to throw the exception
+	 * @return the thrown exception
+	 */
+	static <T extends Throwable> T checkThrows(Class<T> type, Body code) {
+		try {
+			code.run();
+		} catch (Throwable e) {
+			if (type.isInstance(e)) {
+				return type.cast(e);
+			}
+			throw new AssertionError("expected " + type.getSimpleName() + " but was " + e, e);
+		}
+		throw new AssertionError("expected " + type.getSimpleName() + " but nothing was thrown");
+	}
+
+	/**
+	 * grants access to the number of failed tests
+	 *
+	 * @return number of failed tests
+	 */
+	static int getFailedCount() {
+		return failed;
+	}
+
+	/**
+	 * grants access to the number of passed tests
+	 *
+	 * @return number of passed tests
+	 */
+	static int getPassedCount() {
+		return passed;
+	}
+}